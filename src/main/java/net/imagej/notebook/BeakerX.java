@@ -30,15 +30,42 @@
 
 package net.imagej.notebook;
 
+import com.twosigma.beakerx.kernel.KernelManager;
 import com.twosigma.beakerx.mimetype.MIMEContainer;
+import com.twosigma.beakerx.widget.HBox;
+import com.twosigma.beakerx.widget.HTML;
+import com.twosigma.beakerx.widget.VBox;
+import com.twosigma.beakerx.widget.Widget;
 
-import java.io.PrintWriter;
-import java.io.StringWriter;
+import java.awt.image.RenderedImage;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 
 import jupyter.Displayer;
 import jupyter.Displayers;
+import jupyter.ToStringDisplayer;
+
+import net.imglib2.Dimensions;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.util.Intervals;
+import net.imglib2.util.Util;
+
+import org.apache.commons.text.StringEscapeUtils;
+import org.scijava.log.LogService;
 
 /**
  * Helper class to isolate the BeakerX dependencies.
@@ -47,30 +74,288 @@ import jupyter.Displayers;
  */
 class BeakerX {
 
+	/** Renderings which may be queued or running at once, across displayers. */
+	private static final Semaphore PENDING = new Semaphore(64);
+
+	/** Images of at most this many pixels are rendered on the calling thread. */
+	private static final long INLINE_PIXELS = 256 * 256;
+
 	public interface DisplayerPopulator<T> {
 
 		void populate(Map<String, String> map, T object) throws Exception;
 	}
 
+	/** Limits on the time and output size of a single display. */
+	public static class Limits {
+
+		/** Maximum milliseconds to wait for a rendering, or 0 for no limit. */
+		volatile long timeout = 10000;
+
+		/** Maximum UTF-8 bytes of rendered output, or 0 for no limit. */
+		volatile long maxBytes = 32 * 1024 * 1024;
+
+		/** Whether a rendering which times out updates the display when done. */
+		volatile boolean async = true;
+	}
+
+	public static <T> void register(final Class<T> clazz,
+		final DisplayerPopulator<T> populator, final Limits limits,
+		final Supplier<Execution> execution, final LogService log)
+	{
+		register(clazz, object -> true, populator, limits, execution, log);
+	}
+
+	/**
+	 * Registers a displayer which populates only the objects it accepts. Others
+	 * are handed back to the kernel's default rendering, as are objects for
+	 * which the populator produces nothing.
+	 */
 	public static <T> void register(final Class<T> clazz,
-		final DisplayerPopulator<T> populator)
+		final Predicate<? super T> accepts, final DisplayerPopulator<T> populator,
+		final Limits limits, final Supplier<Execution> execution,
+		final LogService log)
 	{
 		Displayers.register(clazz, new Displayer<T>() {
 
 			@Override
 			public Map<String, String> display(final T object) {
+				if (!accepts.test(object)) return fallback(object);
+				final long timeout = limits.timeout;
+				if (timeout <= 0 || small(object)) {
+					return checkSize(populate(object), object);
+				}
+
+				// NB: When the rendering finishes after the deadline, the callback
+				// (if any) receives the result.
+				final AtomicReference<Consumer<Map<String, String>>> onDone =
+					new AtomicReference<>();
+				// NB: The permit is held until the rendering actually stops, even
+				// if it is cancelled while running. Whichever comes first, the
+				// rendering or a cancellation before it starts, releases it.
+				final AtomicBoolean claimed = new AtomicBoolean();
+				final FutureTask<Map<String, String>> future =
+					new FutureTask<Map<String, String>>(() -> {
+						if (!claimed.compareAndSet(false, true)) return null;
+						try {
+							return populate(object);
+						}
+						finally {
+							PENDING.release();
+						}
+					})
+				{
+
+					@Override
+					protected void done() {
+						if (isCancelled() && claimed.compareAndSet(false, true)) {
+							PENDING.release();
+						}
+						finish(this, onDone, object);
+					}
+				};
+				if (!PENDING.tryAcquire()) {
+					return placeholder(object, "too many pending renderings");
+				}
+				try {
+					execution.get().execute(future);
+				}
+				catch (final RejectedExecutionException exc) {
+					PENDING.release();
+					return placeholder(object, "too many pending renderings");
+				}
+				try {
+					return checkSize(future.get(timeout, TimeUnit.MILLISECONDS),
+						object);
+				}
+				catch (final ExecutionException exc) {
+					return error(object, exc.getCause());
+				}
+				catch (final TimeoutException exc) {
+					final String message = "render timed out after " + timeout + " ms";
+					final Consumer<String> sink = limits.async ? htmlWidget() : null;
+					if (sink == null) {
+						future.cancel(true);
+						return placeholder(object, message);
+					}
+					// Show the placeholder now, and the result once it is ready.
+					sink.accept(placeholder(object, message + "; still rendering")
+						.get(MIMEContainer.MIME.TEXT_HTML));
+					onDone.set(m -> sink.accept(html(checkSize(m, object))));
+					if (future.isDone()) finish(future, onDone, object);
+					return new HashMap<>();
+				}
+				catch (final InterruptedException exc) {
+					future.cancel(true);
+					Thread.currentThread().interrupt();
+					return placeholder(object, "render interrupted");
+				}
+			}
+
+			private Map<String, String> populate(final T object) {
 				final HashMap<String, String> m = new HashMap<>();
 				try {
 					populator.populate(m, object);
 				}
 				catch (final Exception exc) {
-					final StringWriter sw = new StringWriter();
-					exc.printStackTrace(new PrintWriter(sw));
-					m.put(MIMEContainer.MIME.TEXT_HTML, "<div><pre>" + sw.toString() +
-						"</pre></div>");
+					return error(object, exc);
+				}
+				return m.isEmpty() ? fallback(object) : m;
+			}
+
+			private void finish(final Future<Map<String, String>> future,
+				final AtomicReference<Consumer<Map<String, String>>> onDone,
+				final T object)
+			{
+				final Consumer<Map<String, String>> callback = onDone.getAndSet(null);
+				if (callback == null || future.isCancelled()) return;
+				try {
+					callback.accept(future.get());
 				}
+				catch (final ExecutionException exc) {
+					callback.accept(error(object, exc.getCause()));
+				}
+				catch (final InterruptedException exc) {
+					Thread.currentThread().interrupt();
+				}
+			}
+
+			private Map<String, String> error(final Object object,
+				final Throwable t)
+			{
+				if (log != null) log.error("Cannot display " + (object == null ? null : object
+					.getClass().getName()), t);
+				final HashMap<String, String> m = new HashMap<>();
+				m.put(MIMEContainer.MIME.TEXT_HTML, "<div><pre>" + escape(t
+					.getClass().getName() + ": " + t.getMessage()) + "</pre></div>");
 				return m;
 			}
+
+			private Map<String, String> checkSize(final Map<String, String> m,
+				final T object)
+			{
+				final long maxBytes = limits.maxBytes;
+				if (maxBytes <= 0) return m;
+				long chars = 0;
+				for (final String value : m.values()) {
+					if (value != null) chars += value.length();
+				}
+				// NB: A char takes at most three bytes in UTF-8.
+				if (3 * chars <= maxBytes) return m;
+				long bytes = 0;
+				for (final String value : m.values()) {
+					if (value != null) bytes += Metrics.utf8Length(value);
+				}
+				if (bytes <= maxBytes) return m;
+				return placeholder(object, "output of " + bytes +
+					" bytes exceeds the limit of " + maxBytes);
+			}
 		});
 	}
+
+	/**
+	 * Displays a new HTML widget in the notebook.
+	 *
+	 * @return A callback which replaces the widget's HTML content, or null if no
+	 *         BeakerX kernel is running.
+	 */
+	public static Consumer<String> htmlWidget() {
+		if (KernelManager.get() == null) return null;
+		final HTML widget = new HTML();
+		widget.display();
+		return html -> widget.setValue(html);
+	}
+
+	/**
+	 * Displays a new grid of HTML widgets in the notebook, one per tile of a
+	 * {@link LiveDisplay}, so that each tile can be updated on its own.
+	 *
+	 * @return A callback which replaces the HTML content of one tile's widget,
+	 *         or null if no BeakerX kernel is running.
+	 */
+	public static LiveDisplay.TileSink tileWidgets(final int tilesX,
+		final int tilesY)
+	{
+		if (KernelManager.get() == null) return null;
+		final HTML[] tiles = new HTML[tilesX * tilesY];
+		final List<Widget> rows = new ArrayList<>();
+		for (int ty = 0; ty < tilesY; ty++) {
+			final List<Widget> row = new ArrayList<>();
+			for (int tx = 0; tx < tilesX; tx++) {
+				final HTML tile = new HTML();
+				tiles[ty * tilesX + tx] = tile;
+				row.add(tile);
+			}
+			rows.add(new HBox(row));
+		}
+		new VBox(rows).display();
+		return (tx, ty, html) -> tiles[ty * tilesX + tx].setValue(html);
+	}
+
+	// -- Helper methods --
+
+	/** Renders an object as the kernel would without our displayers. */
+	private static Map<String, String> fallback(final Object object) {
+		return ToStringDisplayer.get().display(object);
+	}
+
+	/** Checks whether the given object is an image small enough to render fast. */
+	private static boolean small(final Object object) {
+		if (object instanceof Dimensions) {
+			return Intervals.numElements((Dimensions) object) <= INLINE_PIXELS;
+		}
+		if (object instanceof RenderedImage) {
+			final RenderedImage image = (RenderedImage) object;
+			return (long) image.getWidth() * image.getHeight() <= INLINE_PIXELS;
+		}
+		return false;
+	}
+
+	/** Creates a cheap description of an object which could not be rendered. */
+	private static Map<String, String> placeholder(final Object object,
+		final String reason)
+	{
+		final StringBuilder sb = new StringBuilder();
+		sb.append(object == null ? "null" : object.getClass().getName());
+		if (object instanceof Dimensions) {
+			final Dimensions dims = (Dimensions) object;
+			sb.append(" [");
+			for (int d = 0; d < dims.numDimensions(); d++) {
+				if (d > 0) sb.append(" x ");
+				sb.append(dims.dimension(d));
+			}
+			sb.append("]");
+		}
+		if (object instanceof RandomAccessibleInterval) {
+			try {
+				final Object type = Util.getTypeFromInterval(
+					(RandomAccessibleInterval<?>) object);
+				sb.append(" of ").append(type.getClass().getSimpleName());
+			}
+			catch (final RuntimeException exc) {
+				// NB: The element type is only informative; leave it out.
+			}
+		}
+		final HashMap<String, String> m = new HashMap<>();
+		m.put(MIMEContainer.MIME.TEXT_HTML, "<div><pre>" + escape(sb.toString()) +
+			"\nrender truncated: " + escape(reason) + "</pre></div>");
+		return m;
+	}
+
+	/** Converts a display map into HTML for an HTML widget. */
+	private static String html(final Map<String, String> m) {
+		final String html = m.get(MIMEContainer.MIME.TEXT_HTML);
+		if (html != null) return html;
+		for (final Map.Entry<String, String> entry : m.entrySet()) {
+			if (entry.getKey().startsWith("image/")) {
+				return "<img src=\"data:" + entry.getKey() + ";base64," + entry
+					.getValue() + "\" />";
+			}
+		}
+		final String text = m.get("text/plain");
+		return text == null ? "" : "<pre>" + escape(text) + "</pre>";
+	}
+
+	private static String escape(final String text) {
+		return StringEscapeUtils.escapeHtml4(text);
+	}
 }
@@ -0,0 +1,801 @@
+/*-
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2017 - 2018 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.notebook;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.scijava.table.Column;
+import org.scijava.table.DefaultColumn;
+import org.scijava.table.DefaultGenericTable;
+import org.scijava.table.DoubleColumn;
+import org.scijava.table.GenericTable;
+import org.scijava.table.IntColumn;
+import org.scijava.table.LongColumn;
+import org.scijava.table.Table;
+
+/**
+ * A column-oriented table data structure which displays nicely in a notebook.
+ * <p>
+ * Unlike {@link NotebookTable}, which stores each row as a map from column name
+ * to boxed value, this table stores each column as a single array: numeric
+ * columns as {@code double[]}, {@code long[]} or {@code int[]}, and string
+ * columns as dictionary-encoded {@code int[]} codes. Columns of any other type
+ * are stored as {@code Object[]}.
+ * </p>
+ * <p>
+ * Rows are appended with {@link #addRow(Object...)}, which accepts the same
+ * (name, value) pairs as {@link NotebookTable#addRow(Object...)}. The storage
+ * type of each column is chosen from the first non-null value appended to it,
+ * and promoted as needed without losing precision: {@code int} to
+ * {@code long} or {@code double}, {@code long} to {@code double} only while
+ * all its values are exactly representable, and anything else to
+ * {@code Object}.
+ * </p>
+ * <p>
+ * Cells left empty by a row, or set to {@code null}, are <em>missing</em>.
+ * Every column records its missing cells in the same way, as a mask queried
+ * via {@link #isMissing(int, int)}; {@link #get(int, int)} returns
+ * {@code null} for them. Missing cells never change a column's type.
+ * </p>
+ *
+ * @author Curtis Rueden
+ */
+public class ColumnarTable {
+
+	private final List<String> headers = new ArrayList<>();
+	private final List<Data> columns = new ArrayList<>();
+	private final Map<String, Integer> columnIndices = new HashMap<>();
+	private int rowCount;
+
+	/**
+	 * Adds a row to the table.
+	 *
+	 * @param data List of cell names and values. The expected order is in pairs:
+	 *          a column name followed by its value, for each desired cell to
+	 *          populate.
+	 */
+	public void addRow(final Object... data) {
+		if (data.length % 2 != 0) {
+			throw new IllegalArgumentException("Expected (name, value) pairs");
+		}
+		for (int i = 2; i < data.length; i += 2) {
+			for (int j = 0; j < i; j += 2) {
+				if (data[i].toString().equals(data[j].toString())) {
+					throw new IllegalArgumentException("Duplicate column: " + data[i]);
+				}
+			}
+		}
+		for (int i = 0; i < data.length; i += 2) {
+			final int col = columnIndex(data[i].toString());
+			final Data column = columns.get(col);
+			column.pad(rowCount);
+			columns.set(col, column.append(data[i + 1]));
+		}
+		rowCount++;
+		for (final Data column : columns) {
+			column.pad(rowCount);
+		}
+	}
+
+	/**
+	 * Adds a {@code double} column to the table, backed by the given array.
+	 *
+	 * @param header The column header.
+	 * @param values The column values. The array is used directly, not copied.
+	 */
+	public void addColumn(final String header, final double[] values) {
+		addColumn(header, new DoubleData(values, values.length));
+	}
+
+	/**
+	 * Adds a {@code long} column to the table, backed by the given array.
+	 *
+	 * @param header The column header.
+	 * @param values The column values. The array is used directly, not copied.
+	 */
+	public void addColumn(final String header, final long[] values) {
+		addColumn(header, new LongData(values, values.length));
+	}
+
+	/**
+	 * Adds an {@code int} column to the table, backed by the given array.
+	 *
+	 * @param header The column header.
+	 * @param values The column values. The array is used directly, not copied.
+	 */
+	public void addColumn(final String header, final int[] values) {
+		addColumn(header, new IntData(values, values.length));
+	}
+
+	/** Gets the number of rows in the table. */
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	/** Gets the number of columns in the table. */
+	public int getColumnCount() {
+		return columns.size();
+	}
+
+	/** Gets the header of the given column. */
+	public String getColumnHeader(final int col) {
+		return headers.get(col);
+	}
+
+	/**
+	 * Gets the storage type of the given column: one of {@code double.class},
+	 * {@code long.class}, {@code int.class}, {@code String.class} or
+	 * {@code Object.class}.
+	 */
+	public Class<?> getColumnType(final int col) {
+		return columns.get(col).type();
+	}
+
+	/** Checks whether the given cell is missing. */
+	public boolean isMissing(final int col, final int row) {
+		checkRow(row);
+		return columns.get(col).missing.get(row);
+	}
+
+	/**
+	 * Gets the value of the given cell, boxing it if necessary, or null if it
+	 * is missing.
+	 */
+	public Object get(final int col, final int row) {
+		checkRow(row);
+		return columns.get(col).value(row);
+	}
+
+	/**
+	 * Gets the value of the given cell of a numeric column, or {@code NaN} if
+	 * it is missing.
+	 */
+	public double getDouble(final int col, final int row) {
+		checkRow(row);
+		final Data column = columns.get(col);
+		return column.missing.get(row) ? Double.NaN : column.getDouble(row);
+	}
+
+	/**
+	 * Gets the value of the given cell of an integer column.
+	 *
+	 * @throws IllegalStateException if the cell is missing.
+	 */
+	public long getLong(final int col, final int row) {
+		checkRow(row);
+		final Data column = columns.get(col);
+		if (column.missing.get(row)) {
+			throw new IllegalStateException("Missing value at column " + col +
+				", row " + row);
+		}
+		return column.getLong(row);
+	}
+
+	/**
+	 * Gets the backing array of the given column: a {@code double[]},
+	 * {@code long[]}, {@code int[]} or {@code Object[]}; or for {@code String}
+	 * columns, the {@code int[]} dictionary codes. The array may be longer than
+	 * the number of rows. Missing cells hold {@code NaN}, {@code 0},
+	 * {@code -1} (for dictionary codes) or {@code null}; use
+	 * {@link #isMissing(int, int)} to tell them apart from actual values.
+	 */
+	public Object getArray(final int col) {
+		return columns.get(col).array();
+	}
+
+	/**
+	 * Gets the dictionary of the given {@code String} column, indexed by the
+	 * codes of its {@link #getArray(int) backing array}.
+	 */
+	public List<String> getDictionary(final int col) {
+		final Data column = columns.get(col);
+		if (!(column instanceof StringData)) {
+			throw new IllegalArgumentException("Not a String column: " + col);
+		}
+		return Collections.unmodifiableList(((StringData) column).dictionary);
+	}
+
+	/**
+	 * Converts this table to a SciJava {@link Table}, with one primitive column
+	 * per numeric column.
+	 */
+	public GenericTable toTable() {
+		final DefaultGenericTable table = new DefaultGenericTable();
+		table.setRowCount(rowCount);
+		for (int col = 0; col < columns.size(); col++) {
+			table.add(columns.get(col).toColumn(headers.get(col), rowCount));
+		}
+		return table;
+	}
+
+	/**
+	 * Creates a table from the given SciJava {@link Table}. Columns of
+	 * {@code double}, {@code long} and {@code int} values are copied directly
+	 * from their primitive arrays; all other columns are appended cell by cell.
+	 */
+	public static ColumnarTable fromTable(final Table<?, ?> table) {
+		final ColumnarTable result = new ColumnarTable();
+		final int rows = table.getRowCount();
+		for (int col = 0; col < table.getColumnCount(); col++) {
+			final Column<?> column = table.get(col);
+			String header = table.getColumnHeader(col);
+			if (header == null) header = "" + col;
+			final Data data;
+			if (column instanceof DoubleColumn) {
+				data = new DoubleData(Arrays.copyOf(((DoubleColumn) column).getArray(),
+					rows), rows);
+			}
+			else if (column instanceof LongColumn) {
+				data = new LongData(Arrays.copyOf(((LongColumn) column).getArray(),
+					rows), rows);
+			}
+			else if (column instanceof IntColumn) {
+				data = new IntData(Arrays.copyOf(((IntColumn) column).getArray(),
+					rows), rows);
+			}
+			else {
+				Data d = new EmptyData();
+				for (int row = 0; row < rows; row++) {
+					d = d.append(table.get(col, row));
+				}
+				data = d;
+			}
+			result.addColumn(header, data);
+		}
+		return result;
+	}
+
+	// -- Helper methods --
+
+	private int columnIndex(final String header) {
+		final Integer index = columnIndices.get(header);
+		if (index != null) return index;
+		final EmptyData data = new EmptyData();
+		data.pad(rowCount);
+		addColumn(header, data);
+		return columns.size() - 1;
+	}
+
+	private void addColumn(final String header, final Data data) {
+		if (columnIndices.containsKey(header)) {
+			throw new IllegalArgumentException("Duplicate column: " + header);
+		}
+		if (!columns.isEmpty() && data.size != rowCount) {
+			throw new IllegalArgumentException("Expected " + rowCount +
+				" values but got " + data.size);
+		}
+		if (columns.isEmpty()) rowCount = data.size;
+		columnIndices.put(header, columns.size());
+		headers.add(header);
+		columns.add(data);
+	}
+
+	private void checkRow(final int row) {
+		if (row < 0 || row >= rowCount) {
+			throw new IndexOutOfBoundsException("Invalid row: " + row);
+		}
+	}
+
+	/** Gets the new capacity of an array which must hold the given size. */
+	private static int grow(final int capacity, final int minCapacity) {
+		return Math.max(minCapacity, capacity + (capacity >> 1) + 8);
+	}
+
+	// -- Helper classes --
+
+	/** Storage for the values of a single column. */
+	private abstract static class Data {
+
+		int size;
+
+		/** The rows whose cells are missing. */
+		final BitSet missing = new BitSet();
+
+		abstract Class<?> type();
+
+		abstract Object array();
+
+		/** Gets the stored value of the given row, ignoring the missing mask. */
+		abstract Object get(int row);
+
+		/** Gets the value of the given row, or null if it is missing. */
+		Object value(final int row) {
+			return missing.get(row) ? null : get(row);
+		}
+
+		double getDouble(final int row) {
+			throw new UnsupportedOperationException("Not a numeric column");
+		}
+
+		long getLong(final int row) {
+			throw new UnsupportedOperationException("Not an integer column");
+		}
+
+		/**
+		 * Appends a value, returning the column which now holds the data: either
+		 * this column, or a promoted copy of it.
+		 */
+		abstract Data append(Object value);
+
+		/** Grows the backing array, if needed, to hold the given size. */
+		abstract void ensureCapacity(int capacity);
+
+		/** Appends missing cells until the column has the given size. */
+		void pad(final int newSize) {
+			if (newSize <= size) return;
+			ensureCapacity(newSize);
+			fill(size, newSize);
+			missing.set(size, newSize);
+			size = newSize;
+		}
+
+		/** Stores the placeholder of missing cells in the given rows. */
+		void fill(final int from, final int to) {
+			// NB: The default array values are the placeholders.
+		}
+
+		/** Appends a missing cell. */
+		Data appendMissing() {
+			pad(size + 1);
+			return this;
+		}
+
+		abstract Column<?> toColumn(String header, int rows);
+
+		/** Copies the values so far into a column of boxed objects. */
+		ObjectData toObjects() {
+			final Object[] values = new Object[Math.max(8, size)];
+			for (int row = 0; row < size; row++) {
+				values[row] = value(row);
+			}
+			return copyMissing(new ObjectData(values, size));
+		}
+
+		/** Copies the missing mask of this column into the given one. */
+		<D extends Data> D copyMissing(final D data) {
+			data.missing.or(missing);
+			return data;
+		}
+
+		/** Checks whether any of the first rows are missing. */
+		boolean anyMissing(final int rows) {
+			final int first = missing.nextSetBit(0);
+			return first >= 0 && first < rows;
+		}
+	}
+
+	/** A column to which no values have been appended yet. */
+	private static class EmptyData extends Data {
+
+		@Override
+		Class<?> type() {
+			return Object.class;
+		}
+
+		@Override
+		Object array() {
+			return new Object[size];
+		}
+
+		@Override
+		Object get(final int row) {
+			return null;
+		}
+
+		@Override
+		Data append(final Object value) {
+			if (value == null) return appendMissing();
+			final Data data;
+			if (value instanceof Double || value instanceof Float) {
+				data = new DoubleData(new double[8], 0);
+			}
+			else if (value instanceof Long) data = new LongData(new long[8], 0);
+			else if (value instanceof Integer || value instanceof Short ||
+				value instanceof Byte)
+			{
+				data = new IntData(new int[8], 0);
+			}
+			else if (value instanceof String) data = new StringData();
+			else data = new ObjectData(new Object[8], 0);
+			data.pad(size);
+			return data.append(value);
+		}
+
+		@Override
+		void ensureCapacity(final int capacity) {
+			// NB: No storage.
+		}
+
+		@Override
+		Column<?> toColumn(final String header, final int rows) {
+			return toObjects().toColumn(header, rows);
+		}
+	}
+
+	private static class DoubleData extends Data {
+
+		double[] values;
+
+		DoubleData(final double[] values, final int size) {
+			this.values = values;
+			this.size = size;
+		}
+
+		@Override
+		Class<?> type() {
+			return double.class;
+		}
+
+		@Override
+		Object array() {
+			return values;
+		}
+
+		@Override
+		Object get(final int row) {
+			return values[row];
+		}
+
+		@Override
+		double getDouble(final int row) {
+			return values[row];
+		}
+
+		@Override
+		Data append(final Object value) {
+			if (value == null) return appendMissing();
+			if (!exact(value)) return toObjects().append(value);
+			ensureCapacity(size + 1);
+			values[size++] = ((Number) value).doubleValue();
+			return this;
+		}
+
+		@Override
+		void ensureCapacity(final int capacity) {
+			if (capacity > values.length) {
+				values = Arrays.copyOf(values, grow(values.length, capacity));
+			}
+		}
+
+		@Override
+		void fill(final int from, final int to) {
+			Arrays.fill(values, from, to, Double.NaN);
+		}
+
+		@Override
+		Column<?> toColumn(final String header, final int rows) {
+			final DoubleColumn column = new DoubleColumn(header);
+			column.fill(Arrays.copyOf(values, rows));
+			return column;
+		}
+
+		/** Checks whether a double holds the given value exactly. */
+		private static boolean exact(final Object value) {
+			if (value instanceof Long) {
+				final long v = (Long) value;
+				return v <= LongData.EXACT && v >= -LongData.EXACT;
+			}
+			return value instanceof Double || value instanceof Float ||
+				value instanceof Integer || value instanceof Short ||
+				value instanceof Byte;
+		}
+	}
+
+	private static class LongData extends Data {
+
+		/** The largest magnitude of a {@code long} which a double holds exactly. */
+		private static final long EXACT = 1L << 53;
+
+		long[] values;
+
+		LongData(final long[] values, final int size) {
+			this.values = values;
+			this.size = size;
+		}
+
+		@Override
+		Class<?> type() {
+			return long.class;
+		}
+
+		@Override
+		Object array() {
+			return values;
+		}
+
+		@Override
+		Object get(final int row) {
+			return values[row];
+		}
+
+		@Override
+		double getDouble(final int row) {
+			return values[row];
+		}
+
+		@Override
+		long getLong(final int row) {
+			return values[row];
+		}
+
+		@Override
+		Data append(final Object value) {
+			if (value == null) return appendMissing();
+			if (value instanceof Double || value instanceof Float) {
+				// NB: Widen to double only if no value loses precision.
+				for (int row = 0; row < size; row++) {
+					if (values[row] > EXACT || values[row] < -EXACT) {
+						return toObjects().append(value);
+					}
+				}
+				return toDoubles().append(value);
+			}
+			if (!(value instanceof Long || value instanceof Integer ||
+				value instanceof Short || value instanceof Byte))
+			{
+				return toObjects().append(value);
+			}
+			ensureCapacity(size + 1);
+			values[size++] = ((Number) value).longValue();
+			return this;
+		}
+
+		@Override
+		void ensureCapacity(final int capacity) {
+			if (capacity > values.length) {
+				values = Arrays.copyOf(values, grow(values.length, capacity));
+			}
+		}
+
+		@Override
+		Column<?> toColumn(final String header, final int rows) {
+			if (anyMissing(rows)) return toObjects().toColumn(header, rows);
+			final LongColumn column = new LongColumn(header);
+			column.fill(Arrays.copyOf(values, rows));
+			return column;
+		}
+
+		private DoubleData toDoubles() {
+			final double[] doubles = new double[Math.max(8, size)];
+			for (int row = 0; row < size; row++) {
+				doubles[row] = missing.get(row) ? Double.NaN : values[row];
+			}
+			return copyMissing(new DoubleData(doubles, size));
+		}
+	}
+
+	private static class IntData extends Data {
+
+		int[] values;
+
+		IntData(final int[] values, final int size) {
+			this.values = values;
+			this.size = size;
+		}
+
+		@Override
+		Class<?> type() {
+			return int.class;
+		}
+
+		@Override
+		Object array() {
+			return values;
+		}
+
+		@Override
+		Object get(final int row) {
+			return values[row];
+		}
+
+		@Override
+		double getDouble(final int row) {
+			return values[row];
+		}
+
+		@Override
+		long getLong(final int row) {
+			return values[row];
+		}
+
+		@Override
+		Data append(final Object value) {
+			if (value == null) return appendMissing();
+			if (value instanceof Long) return toLongs().append(value);
+			if (value instanceof Double || value instanceof Float) {
+				return toDoubles().append(value);
+			}
+			if (!(value instanceof Integer || value instanceof Short ||
+				value instanceof Byte))
+			{
+				return toObjects().append(value);
+			}
+			ensureCapacity(size + 1);
+			values[size++] = ((Number) value).intValue();
+			return this;
+		}
+
+		@Override
+		void ensureCapacity(final int capacity) {
+			if (capacity > values.length) {
+				values = Arrays.copyOf(values, grow(values.length, capacity));
+			}
+		}
+
+		@Override
+		Column<?> toColumn(final String header, final int rows) {
+			if (anyMissing(rows)) return toObjects().toColumn(header, rows);
+			final IntColumn column = new IntColumn(header);
+			column.fill(Arrays.copyOf(values, rows));
+			return column;
+		}
+
+		private LongData toLongs() {
+			final long[] longs = new long[Math.max(8, size)];
+			for (int row = 0; row < size; row++) {
+				longs[row] = values[row];
+			}
+			return copyMissing(new LongData(longs, size));
+		}
+
+		private DoubleData toDoubles() {
+			final double[] doubles = new double[Math.max(8, size)];
+			for (int row = 0; row < size; row++) {
+				doubles[row] = missing.get(row) ? Double.NaN : values[row];
+			}
+			return copyMissing(new DoubleData(doubles, size));
+		}
+	}
+
+	/** Dictionary-encoded column of strings. */
+	private static class StringData extends Data {
+
+		final List<String> dictionary = new ArrayList<>();
+		final Map<String, Integer> codes = new HashMap<>();
+		int[] values = new int[8];
+
+		@Override
+		Class<?> type() {
+			return String.class;
+		}
+
+		@Override
+		Object array() {
+			return values;
+		}
+
+		@Override
+		Object get(final int row) {
+			final int code = values[row];
+			return code < 0 ? null : dictionary.get(code);
+		}
+
+		@Override
+		Data append(final Object value) {
+			if (value == null) return appendMissing();
+			if (!(value instanceof String)) return toObjects().append(value);
+			ensureCapacity(size + 1);
+			values[size++] = code((String) value);
+			return this;
+		}
+
+		@Override
+		void ensureCapacity(final int capacity) {
+			if (capacity > values.length) {
+				values = Arrays.copyOf(values, grow(values.length, capacity));
+			}
+		}
+
+		@Override
+		void fill(final int from, final int to) {
+			Arrays.fill(values, from, to, -1);
+		}
+
+		@Override
+		Column<?> toColumn(final String header, final int rows) {
+			final DefaultColumn<String> column = //
+				new DefaultColumn<>(String.class, header);
+			for (int row = 0; row < rows; row++) {
+				column.add((String) value(row));
+			}
+			return column;
+		}
+
+		private int code(final String value) {
+			final Integer code = codes.get(value);
+			if (code != null) return code;
+			codes.put(value, dictionary.size());
+			dictionary.add(value);
+			return dictionary.size() - 1;
+		}
+	}
+
+	private static class ObjectData extends Data {
+
+		Object[] values;
+
+		ObjectData(final Object[] values, final int size) {
+			this.values = values;
+			this.size = size;
+		}
+
+		@Override
+		Class<?> type() {
+			return Object.class;
+		}
+
+		@Override
+		Object array() {
+			return values;
+		}
+
+		@Override
+		Object get(final int row) {
+			return values[row];
+		}
+
+		@Override
+		Data append(final Object value) {
+			if (value == null) return appendMissing();
+			ensureCapacity(size + 1);
+			values[size++] = value;
+			return this;
+		}
+
+		@Override
+		void ensureCapacity(final int capacity) {
+			if (capacity > values.length) {
+				values = Arrays.copyOf(values, grow(values.length, capacity));
+			}
+		}
+
+		@Override
+		ObjectData toObjects() {
+			return this;
+		}
+
+		@Override
+		Column<?> toColumn(final String header, final int rows) {
+			final DefaultColumn<Object> column = //
+				new DefaultColumn<>(Object.class, header);
+			for (int row = 0; row < rows; row++) {
+				column.add(value(row));
+			}
+			return column;
+		}
+	}
+}
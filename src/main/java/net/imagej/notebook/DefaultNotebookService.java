@@ -30,17 +30,21 @@
 
 package net.imagej.notebook;
 
-import java.lang.reflect.Method;
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Optional;
+import java.util.WeakHashMap;
 
 import net.imagej.Data;
 import net.imagej.DatasetService;
 import net.imagej.display.DataView;
 import net.imagej.display.DatasetView;
 import net.imagej.display.ImageDisplayService;
+import net.imagej.notebook.mime.ArrowObject;
 import net.imagej.notebook.mime.MIMEObject;
+import net.imagej.ops.OpInfo;
 import net.imagej.ops.OpService;
 import net.imagej.ops.Ops;
 import net.imagej.ops.special.inplace.Inplaces;
@@ -54,12 +58,16 @@ import net.imglib2.util.IntervalIndexer;
 import net.imglib2.util.Util;
 import net.imglib2.view.IntervalView;
 
+import org.scijava.command.CommandInfo;
+import org.scijava.convert.ConversionRequest;
 import org.scijava.convert.ConvertService;
+import org.scijava.convert.Converter;
+import org.scijava.module.ModuleItem;
 import org.scijava.plugin.Parameter;
 import org.scijava.plugin.Plugin;
 import org.scijava.service.AbstractService;
 import org.scijava.service.Service;
-import org.scijava.util.ClassUtils;
+import org.scijava.service.ServiceHelper;
 
 /**
  * AWT-driven implementation of {@link NotebookService}.
@@ -73,15 +81,32 @@ public class DefaultNotebookService extends AbstractService implements
 
 	@Parameter
 	private ConvertService convertService;
-	
-	@Parameter
-	private ImageDisplayService ids;
-	
-	@Parameter
-	private DatasetService ds;
 
-	@Parameter
-	private OpService ops;
+	// NB: Heavier services (ImageDisplayService, DatasetService and OpService)
+	// are not declared as parameters, so that creating a context with this
+	// service does not create them too. They are obtained on first use instead;
+	// see service(Class).
+
+	/**
+	 * Dispatch table of MIME converters, by input class. Weakly keyed, so that
+	 * displayed classes can still be unloaded.
+	 */
+	private final Map<Class<?>, Optional<Converter<?, ?>>> mimeConverters =
+		Collections.synchronizedMap(new WeakHashMap<>());
+
+	/** Limits on rendering objects for display by the notebook. */
+	private final BeakerX.Limits limits = new BeakerX.Limits();
+
+	private final DisplaySettings displaySettings = new DisplaySettings();
+
+	/** Timings of the display pipeline, recorded while enabled. */
+	private final Metrics metrics = new Metrics();
+
+	/** Backend on which the module's parallel work runs. */
+	private volatile Execution execution = Execution.common();
+
+	private final MethodSearch methodSearch = new MethodSearch();
+	private boolean searchIndexStarted;
 
 	// -- Service methods --
 
@@ -90,29 +115,35 @@ public class DefaultNotebookService extends AbstractService implements
 		try {
 			// Anything that implements MIMEObject can be displayed.
 			BeakerX.register(MIMEObject.class, (map, mimeObj) -> {
-				map.put(mimeObj.mimeType(), mimeObj.data());
-			});
+				map.put(mimeObj.mimeType(), metrics.track(mimeObj::data));
+			}, limits, this::execution, log());
 
 			// Anything convertible to MIMEObject can also be displayed.
-			// TODO: Fix bug in ConvertService#getCompatibleInputClasses.
-			// It should check class assignability, not only exact equality.
-			final List<Class<?>> mimeFriendlyTypes = //
-				convertService.getInstances().stream() //
-					.filter(c -> MIMEObject.class.isAssignableFrom(c.getOutputType())) //
-					.map(c -> c.getInputType()) //
-					.collect(Collectors.toList());
-			for (final Class<?> mimeFriendlyType : mimeFriendlyTypes) {
-				BeakerX.register(mimeFriendlyType, (map, object) -> {
+			// NB: Converters are looked up per class on first display, through
+			// the dispatch table, rather than creating every converter plugin
+			// up front. Other objects get the kernel's default rendering.
+			BeakerX.register(Object.class, this::displayable,
+				(map, object) -> {
 					final MIMEObject mimeObj = mime(object);
-					if (mimeObj != null) map.put(mimeObj.mimeType(), mimeObj.data());
-				});
-			}
+					if (mimeObj == null) return;
+					map.put(mimeObj.mimeType(), metrics.track(mimeObj::data));
+				}, limits, this::execution, log());
 		}
 		catch (final NoClassDefFoundError exc) {
 			// NB: BeakerX is not available; ignore.
 		}
 	}
 
+	@Override
+	public void dispose() {
+		mimeConverters.clear();
+		metrics.reset();
+		// NB: Shut down a backend owning its threads, and do not keep one which
+		// may use the context's threads.
+		execution.close();
+		execution = Execution.common();
+	}
+
 	// -- NotebookService methods --
 
 	@Override
@@ -121,6 +152,41 @@ public class DefaultNotebookService extends AbstractService implements
 		return mimeObj == null ? source : mimeObj;
 	}
 
+	@Override
+	public ArrowObject arrow(final Object table) {
+		return convertService.convert(table, ArrowObject.class);
+	}
+
+	@Override
+	public Metrics metrics() {
+		return metrics;
+	}
+
+	@Override
+	public void setRenderLimits(final long timeout, final long maxBytes,
+		final boolean async)
+	{
+		limits.timeout = timeout;
+		limits.maxBytes = maxBytes;
+		limits.async = async;
+	}
+
+	@Override
+	public DisplaySettings displaySettings() {
+		return displaySettings;
+	}
+
+	@Override
+	public void setExecution(final Execution execution) {
+		if (execution == null) throw new NullPointerException();
+		this.execution = execution;
+	}
+
+	@Override
+	public Execution execution() {
+		return execution;
+	}
+
 	@Override
 	public <T extends RealType<T> & NativeType<T>> RandomAccessibleInterval<T>
 		mosaic(final int[] gridLayout,
@@ -171,6 +237,7 @@ public class DefaultNotebookService extends AbstractService implements
 			mosaicDims[d] = offsets[d][offsets[d].length - 1];
 		final FinalInterval mosaicBox = new FinalInterval(mosaicDims);
 
+		final OpService ops = service(OpService.class);
 		final Img<T> result = //
 			ops.create().img(mosaicBox, Util.getTypeFromInterval(images[0]));
 
@@ -216,54 +283,36 @@ public class DefaultNotebookService extends AbstractService implements
 
 	@Override
 	public NotebookTable methods(final Class<?> type, final String prefix) {
-		final NotebookTable table = new NotebookTable();
-
-		final Method[] methods = type.getMethods();
-		// NB: Methods are returned in inconsistent order.
-		Arrays.sort(methods, (m1, m2) -> {
-			final int nameComp = m1.getName().compareTo(m2.getName());
-			if (nameComp != 0) return nameComp;
-			final int pCount1 = m1.getParameterCount();
-			final int pCount2 = m2.getParameterCount();
-			if (pCount1 != pCount2) return pCount1 - pCount2;
-			final Class<?>[] pTypes1 = m1.getParameterTypes();
-			final Class<?>[] pTypes2 = m2.getParameterTypes();
-			for (int i = 0; i < pTypes1.length; i++) {
-				final int typeComp = ClassUtils.compare(pTypes1[i], pTypes2[i]);
-				if (typeComp != 0) return typeComp;
-			}
-			return ClassUtils.compare(m1.getReturnType(), m2.getReturnType());
-		});
-
-		for (final Method m : methods) {
-			final String name = m.getName();
-			if (!name.startsWith(prefix)) continue;
-
-			final Class<?>[] paramTypes = m.getParameterTypes();
-			final List<String> args = Arrays.asList(paramTypes).stream().map(//
-				c -> c.getName() //
-			).collect(Collectors.toList());
-			String arguments = args.toString();
-			arguments = arguments.substring(1, arguments.length() - 1);
-			if (arguments.isEmpty()) arguments = "<none>";
-
-			final String returns = m.getReturnType().getName();
+		methodSearch.add(type);
+		final MethodIndex index = MethodIndex.of(type);
+		final int first = index.first(prefix), end = index.end(prefix);
 
+		final NotebookTable table = new NotebookTable();
+		table.ensureCapacity(end - first);
+		for (int m = first; m < end; m++) {
 			table.addRow(//
-				"name", name, //
-				"arguments", arguments, //
-				"returns", returns //
+				"name", index.names[m], //
+				"arguments", index.arguments[m], //
+				"returns", index.returns[m] //
 			);
 		}
 		return table;
 	}
-	
+
+	@Override
+	public NotebookTable search(final String query, final int maxResults) {
+		// NB: The OpService is created on the calling thread, if needed, since
+		// the context does not guard against creating a service twice.
+		startSearchIndex(service(OpService.class));
+		return methodSearch.search(query, maxResults);
+	}
+
 	@Override
 	public <T extends RealType<T>> DatasetView viewRealType(
 		final RandomAccessibleInterval<T> source)
 	{
-		Data data = ds.create(source);
-		DataView view = ids.createDataView(data);
+		Data data = service(DatasetService.class).create(source);
+		DataView view = service(ImageDisplayService.class).createDataView(data);
 		if (!(view instanceof DatasetView))
 			throw new IllegalArgumentException(
 				"source image cannot be cast to a DatasetView");
@@ -274,6 +323,84 @@ public class DefaultNotebookService extends AbstractService implements
 	// -- Helper methods --
 
 	private MIMEObject mime(final Object object) {
-		return convertService.convert(object, MIMEObject.class);
+		if (object instanceof MIMEObject) return (MIMEObject) object;
+		final Converter<?, ?> converter = converter(object);
+		return converter == null ? null : converter.convert(object,
+			MIMEObject.class);
+	}
+
+	private boolean displayable(final Object object) {
+		return object instanceof MIMEObject || converter(object) != null;
+	}
+
+	/** Looks up the converter which turns the object into a MIME object. */
+	private Converter<?, ?> converter(final Object object) {
+		if (object == null) return null;
+		final long start = System.nanoTime();
+		final Class<?> type = object.getClass();
+		Optional<Converter<?, ?>> cached = mimeConverters.get(type);
+		if (cached == null) {
+			cached = Optional.ofNullable(convertService.getHandler(
+				new ConversionRequest(type, MIMEObject.class)));
+			mimeConverters.put(type, cached);
+		}
+		Converter<?, ?> converter = cached.orElse(null);
+		if (converter != null && !converter.canConvert(object, MIMEObject.class)) {
+			// NB: This converter accepts only some instances of the class.
+			converter = convertService.getHandler(object, MIMEObject.class);
+		}
+		metrics.record("mime.resolve", start);
+		return converter;
+	}
+
+	/**
+	 * Gets the service of the given type from the context, creating it (and any
+	 * services it depends on) if it does not exist yet.
+	 */
+	private synchronized <S extends Service> S service(final Class<S> c) {
+		final S service = context().getService(c);
+		if (service != null) return service;
+		return new ServiceHelper(context()).loadService(c);
+	}
+
+	/** Populates the search index in the background, if not already begun. */
+	private synchronized void startSearchIndex(final OpService ops) {
+		if (searchIndexStarted) return;
+		searchIndexStarted = true;
+		execution.execute(() -> {
+			final List<Service> services = context().getServiceIndex().getAll();
+			for (final Service service : services) {
+				methodSearch.add(service.getClass());
+			}
+			if (ops != null) indexOps(ops);
+		});
+	}
+
+	private void indexOps(final OpService ops) {
+		final List<OpInfo> infos = new ArrayList<>(ops.infos());
+		final String[] owners = new String[infos.size()];
+		final String[] names = new String[infos.size()];
+		final String[] arguments = new String[infos.size()];
+		final String[] returns = new String[infos.size()];
+		for (int i = 0; i < infos.size(); i++) {
+			final OpInfo info = infos.get(i);
+			final CommandInfo cInfo = info.cInfo();
+			owners[i] = cInfo.getClassName();
+			names[i] = info.getName() == null ? //
+				owners[i].substring(owners[i].lastIndexOf('.') + 1) : info.getName();
+			final StringBuilder args = new StringBuilder();
+			for (final ModuleItem<?> input : cInfo.inputs()) {
+				if (args.length() > 0) args.append(", ");
+				args.append(input.getType().getName());
+			}
+			arguments[i] = args.length() == 0 ? "<none>" : args.toString();
+			returns[i] = "void";
+			for (final ModuleItem<?> output : cInfo.outputs()) {
+				returns[i] = output.getType().getName();
+				break;
+			}
+		}
+		methodSearch.add(OpService.class.getName() + "#infos", owners, names,
+			arguments, returns);
 	}
 }
@@ -0,0 +1,105 @@
+/*-
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2017 - 2018 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.notebook;
+
+/**
+ * Settings which bound the output of the converters used to display objects
+ * in the notebook. Each {@link NotebookService} has its own settings; see
+ * {@link NotebookService#displaySettings()}.
+ *
+ * @author Curtis Rueden
+ */
+public class DisplaySettings {
+
+	private volatile int maxListItems = 1000;
+	private volatile int maxListDepth = 8;
+	private volatile long maxListChars = 16 * 1024 * 1024;
+	private volatile int maxImageDimension = 1024;
+
+	/** Gets the maximum number of elements shown per list. */
+	public int getMaxListItems() {
+		return maxListItems;
+	}
+
+	/** Sets the maximum number of elements shown per list. */
+	public void setMaxListItems(final int maxListItems) {
+		this.maxListItems = check("maxListItems", maxListItems);
+	}
+
+	/** Gets the maximum nesting depth of lists which are expanded. */
+	public int getMaxListDepth() {
+		return maxListDepth;
+	}
+
+	/** Sets the maximum nesting depth of lists which are expanded. */
+	public void setMaxListDepth(final int maxListDepth) {
+		this.maxListDepth = check("maxListDepth", maxListDepth);
+	}
+
+	/** Gets the number of characters of list output after which it stops. */
+	public long getMaxListChars() {
+		return maxListChars;
+	}
+
+	/** Sets the number of characters of list output after which it stops. */
+	public void setMaxListChars(final long maxListChars) {
+		this.maxListChars = check("maxListChars", maxListChars);
+	}
+
+	/**
+	 * Gets the maximum width and height of displayed images, or 0 if images are
+	 * displayed at their full size.
+	 */
+	public int getMaxImageDimension() {
+		return maxImageDimension;
+	}
+
+	/**
+	 * Sets the maximum width and height of displayed images, or 0 to display
+	 * images at their full size. Larger images are shrunken before encoding.
+	 */
+	public void setMaxImageDimension(final int maxImageDimension) {
+		this.maxImageDimension = check("maxImageDimension", maxImageDimension);
+	}
+
+	// -- Helper methods --
+
+	private static int check(final String name, final int value) {
+		return (int) check(name, (long) value);
+	}
+
+	private static long check(final String name, final long value) {
+		if (value < 0) {
+			throw new IllegalArgumentException("Negative " + name + ": " + value);
+		}
+		return value;
+	}
+}
@@ -0,0 +1,279 @@
+/*-
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2017 - 2018 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.notebook;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+
+import org.scijava.thread.ThreadService;
+
+/**
+ * The backend on which all parallel work of the notebook module runs:
+ * rendering planes of a sprite sheet, indexing the method search, rendering
+ * BeakerX displays and pushing {@link LiveDisplay} updates.
+ * <p>
+ * Work is split into two lanes. The <em>compute</em> lane runs CPU-bound
+ * rendering, and the <em>I/O</em> lane runs encode and transfer steps, which
+ * mostly wait. Both lanes default to the same executor; see
+ * {@link #withVirtualThreadIO()} to give the I/O lane one virtual thread per
+ * task. A single call never occupies more than {@link #parallelism()} threads
+ * at once, so the module cannot starve the kernel or ImageJ's own
+ * {@link ThreadService}.
+ * </p>
+ * <p>
+ * Each {@link NotebookService} has its own backend, which is closed and reset
+ * to {@link #common()} when the service is disposed. A backend which owns its
+ * threads, such as one from {@link #forkJoin(int)}, shuts them down when it is
+ * closed; closing the others does nothing.
+ * </p>
+ *
+ * @author Curtis Rueden
+ * @see NotebookService#setExecution(Execution)
+ */
+public final class Execution implements AutoCloseable {
+
+	private final String name;
+	private final Function<Runnable, Future<?>> compute;
+	private final Function<Runnable, Future<?>> io;
+	private final int parallelism;
+	private final Runnable shutdown;
+
+	private Execution(final String name,
+		final Function<Runnable, Future<?>> compute,
+		final Function<Runnable, Future<?>> io, final int parallelism,
+		final Runnable shutdown)
+	{
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Invalid parallelism: " +
+				parallelism);
+		}
+		this.name = name;
+		this.compute = compute;
+		this.io = io;
+		this.parallelism = parallelism;
+		this.shutdown = shutdown;
+	}
+
+	// -- Static methods --
+
+	/**
+	 * Gets a backend running on the JVM's common {@link ForkJoinPool}, the same
+	 * threads as parallel streams. This is the default.
+	 */
+	public static Execution common() {
+		final ForkJoinPool pool = ForkJoinPool.commonPool();
+		return new Execution("common", pool::submit, pool::submit, pool
+			.getParallelism() + 1, () -> {});
+	}
+
+	/**
+	 * Gets a backend running on the given SciJava {@link ThreadService}, sharing
+	 * its threads with the rest of the application context.
+	 */
+	public static Execution threadService(final ThreadService threadService) {
+		return new Execution("thread service", threadService::run,
+			threadService::run, Runtime.getRuntime().availableProcessors(), () -> {});
+	}
+
+	/**
+	 * Gets a backend running on a dedicated {@link ForkJoinPool} of the given
+	 * size, isolated from the rest of the JVM. The backend owns the pool: the
+	 * caller must {@link #close()} it, or hand it to a service which is later
+	 * disposed.
+	 */
+	public static Execution forkJoin(final int parallelism) {
+		final ForkJoinPool pool = new ForkJoinPool(parallelism);
+		return new Execution("fork-join(" + parallelism + ")", pool::submit,
+			pool::submit, parallelism, pool::shutdown);
+	}
+
+	/**
+	 * Returns whether this JVM supports virtual threads (Java 21 and later).
+	 */
+	public static boolean virtualThreadsSupported() {
+		return VirtualThreads.EXECUTOR != null;
+	}
+
+	// -- Execution methods --
+
+	/**
+	 * Gets a copy of this backend whose I/O lane starts one virtual thread per
+	 * task. On JVMs without virtual threads, the copy is identical to this one.
+	 */
+	public Execution withVirtualThreadIO() {
+		final ExecutorService executor = VirtualThreads.EXECUTOR;
+		if (executor == null) return this;
+		return new Execution(name + ", virtual I/O", compute, executor::submit,
+			parallelism, shutdown);
+	}
+
+	/**
+	 * Gets a copy of this backend which uses at most the given number of
+	 * threads for any single call. The copy shares this backend's threads, so
+	 * closing either one shuts them down.
+	 */
+	public Execution withParallelism(final int maxParallelism) {
+		return new Execution(name, compute, io, maxParallelism, shutdown);
+	}
+
+	/** Gets the maximum number of threads used by any single call. */
+	public int parallelism() {
+		return parallelism;
+	}
+
+	/** Runs the given CPU-bound task in the background. */
+	public Future<?> execute(final Runnable task) {
+		return compute.apply(task);
+	}
+
+	/** Runs the given I/O-bound task (e.g., encoding) in the background. */
+	public Future<?> executeIO(final Runnable task) {
+		return io.apply(task);
+	}
+
+	/**
+	 * Calls the given action once for each index from 0 (inclusive) to
+	 * {@code count} (exclusive), in parallel on the compute lane, and waits
+	 * until all calls are done.
+	 * <p>
+	 * The calling thread takes part in the work, so the call completes even when
+	 * the compute lane is saturated, or when calls are nested. If any call
+	 * fails, the remaining indices are skipped and the first failure is
+	 * rethrown.
+	 * </p>
+	 */
+	public void forEach(final int count, final IntConsumer action) {
+		final int workers = Math.min(count, parallelism);
+		if (workers <= 1) {
+			for (int i = 0; i < count; i++)
+				action.accept(i);
+			return;
+		}
+
+		final AtomicInteger next = new AtomicInteger();
+		final AtomicReference<Throwable> failure = new AtomicReference<>();
+		final Runnable worker = () -> {
+			int i;
+			while (failure.get() == null && (i = next.getAndIncrement()) < count) {
+				try {
+					action.accept(i);
+				}
+				catch (final Throwable t) {
+					failure.compareAndSet(null, t);
+				}
+			}
+		};
+
+		// NB: Each helper either runs the worker and then counts down, or finds
+		// its work already done by the calling thread, which counts down for it.
+		final AtomicInteger unstarted = new AtomicInteger(workers - 1);
+		final CountDownLatch done = new CountDownLatch(workers - 1);
+		final Runnable helper = () -> {
+			if (unstarted.getAndDecrement() <= 0) return;
+			try {
+				worker.run();
+			}
+			finally {
+				done.countDown();
+			}
+		};
+		try {
+			for (int w = 1; w < workers; w++)
+				compute.apply(helper);
+		}
+		catch (final RejectedExecutionException exc) {
+			// NB: The calling thread does the remaining work itself.
+		}
+		worker.run();
+
+		for (int n = Math.max(0, unstarted.getAndSet(0)); n > 0; n--) {
+			done.countDown();
+		}
+		try {
+			done.await();
+		}
+		catch (final InterruptedException exc) {
+			Thread.currentThread().interrupt();
+			failure.compareAndSet(null, exc);
+		}
+
+		final Throwable t = failure.get();
+		if (t == null) return;
+		if (t instanceof RuntimeException) throw (RuntimeException) t;
+		if (t instanceof Error) throw (Error) t;
+		throw new IllegalStateException(t);
+	}
+
+	// -- AutoCloseable methods --
+
+	/**
+	 * Shuts down the threads owned by this backend, if any. Tasks already
+	 * submitted still run, but new ones are rejected; {@link #forEach} then
+	 * does all the work on the calling thread.
+	 */
+	@Override
+	public void close() {
+		shutdown.run();
+	}
+
+	// -- Object methods --
+
+	@Override
+	public String toString() {
+		return name + " x" + parallelism;
+	}
+
+	// -- Helper classes --
+
+	/** Lazily looks up the virtual-thread-per-task executor, if available. */
+	private static final class VirtualThreads {
+
+		private static final ExecutorService EXECUTOR = executor();
+
+		private static ExecutorService executor() {
+			try {
+				return (ExecutorService) Executors.class.getMethod(
+					"newVirtualThreadPerTaskExecutor").invoke(null);
+			}
+			catch (final ReflectiveOperationException exc) {
+				return null;
+			}
+		}
+	}
+}
@@ -0,0 +1,204 @@
+/*-
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2017 - 2018 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.notebook;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+import net.imagej.display.DatasetView;
+import net.imagej.notebook.NotebookService.ValueScaling;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.display.ColorTable8;
+import net.imglib2.type.numeric.RealType;
+
+/**
+ * A lightweight view of an image, carrying only the settings needed to render
+ * it: the display range and color table of each channel, and the position
+ * within any dimensions which are not displayed.
+ * <p>
+ * Unlike a {@link DatasetView}, an {@code ImageView} does not wrap its source
+ * in a {@code Dataset}, nor register any display or event handlers with the
+ * SciJava context. It renders directly via {@link Images}.
+ * </p>
+ *
+ * @author Curtis Rueden
+ */
+public class ImageView<T extends RealType<T>> {
+
+	private final RandomAccessibleInterval<T> source;
+	private final int xAxis, yAxis, cAxis;
+	private final double[] min, max;
+	private final ColorTable8[] luts;
+	private final long[] pos;
+	private final Renderer<T> renderer = new Renderer<>();
+	private String title;
+
+	/**
+	 * Creates a view of the given image, guessing which dimension (if any) holds
+	 * its channels, and initializing its display ranges with the
+	 * {@link ValueScaling#AUTO} strategy.
+	 *
+	 * @param source The image to view.
+	 */
+	public ImageView(final RandomAccessibleInterval<T> source) {
+		this(source, 0, 1, Images.channelAxis(source));
+	}
+
+	/**
+	 * Creates a view of the given image, initializing its display ranges with
+	 * the {@link ValueScaling#AUTO} strategy.
+	 *
+	 * @param source The image to view.
+	 * @param xAxis The image dimension to use for the X axis.
+	 * @param yAxis The image dimension to use for the Y axis.
+	 * @param cAxis The image dimension to use for compositing multiple channels,
+	 *          or -1 for no compositing.
+	 */
+	public ImageView(final RandomAccessibleInterval<T> source, final int xAxis,
+		final int yAxis, final int cAxis)
+	{
+		this.source = source;
+		this.xAxis = xAxis;
+		this.yAxis = yAxis;
+		this.cAxis = cAxis;
+		final int channels = cAxis >= 0 ? (int) source.dimension(cAxis) : 1;
+		min = new double[channels];
+		max = new double[channels];
+		luts = new ColorTable8[channels];
+		for (int c = 0; c < channels; c++) {
+			luts[c] = Images.defaultColorTable(c, channels);
+		}
+		pos = new long[source.numDimensions()];
+		for (int d = 0; d < pos.length; d++) {
+			pos[d] = source.min(d);
+		}
+		final double[] range = Images.range(source, ValueScaling.AUTO);
+		setChannelRanges(range[0], range[1]);
+	}
+
+	// -- ImageView methods --
+
+	/** Gets the image being viewed. */
+	public RandomAccessibleInterval<T> getSource() {
+		return source;
+	}
+
+	/** Gets the number of channels composited together by this view. */
+	public int getChannelCount() {
+		return luts.length;
+	}
+
+	/** Gets the minimum display value of the given channel. */
+	public double getChannelMin(final int c) {
+		return min[c];
+	}
+
+	/** Gets the maximum display value of the given channel. */
+	public double getChannelMax(final int c) {
+		return max[c];
+	}
+
+	/** Sets the display range of the given channel. */
+	public void setChannelRange(final int c, final double min,
+		final double max)
+	{
+		this.min[c] = min;
+		this.max[c] = max;
+	}
+
+	/** Sets the display range of all channels. */
+	public void setChannelRanges(final double min, final double max) {
+		for (int c = 0; c < luts.length; c++) {
+			setChannelRange(c, min, max);
+		}
+	}
+
+	/** Gets the color table of the given channel. */
+	public ColorTable8 getColorTable(final int c) {
+		return luts[c];
+	}
+
+	/** Sets the color table of the given channel. */
+	public void setColorTable(final ColorTable8 lut, final int c) {
+		luts[c] = lut;
+	}
+
+	/** Gets the position of the view along the given dimension. */
+	public long getLongPosition(final int d) {
+		return pos[d];
+	}
+
+	/** Sets the position of the view along the given dimension. */
+	public void setPosition(final long position, final int d) {
+		pos[d] = position;
+	}
+
+	/** Gets the title of the view, or null if it has none. */
+	public String getTitle() {
+		return title;
+	}
+
+	/** Sets the title of the view. Pass null for no title. */
+	public void setTitle(final String title) {
+		this.title = title;
+	}
+
+	/**
+	 * Renders the view, according to its current settings.
+	 * <p>
+	 * The rendering buffers are retained between calls, so the returned image is
+	 * overwritten when the view is rendered again.
+	 * </p>
+	 *
+	 * @return {@link BufferedImage} representation.
+	 */
+	public synchronized BufferedImage bufferedImage() {
+		// NB: Images renders relative to the origin of the image.
+		final long[] offsetPos = new long[pos.length];
+		for (int d = 0; d < pos.length; d++) {
+			offsetPos[d] = pos[d] - source.min(d);
+		}
+		return renderer.render(source, xAxis, yAxis, cAxis, min, max, luts,
+			offsetPos);
+	}
+
+	/**
+	 * Renders the view and encodes it as an HTML image, according to its
+	 * current settings. The encoding happens while holding the same lock as
+	 * rendering, so a concurrent render cannot overwrite the retained buffer
+	 * while it is being encoded.
+	 *
+	 * @return An HTML string embedding the rendered view as a PNG image.
+	 */
+	public synchronized String html() throws IOException {
+		return Images.html(bufferedImage(), title);
+	}
+}
@@ -30,13 +30,32 @@
 
 package net.imagej.notebook;
 
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DataBufferByte;
+import java.awt.image.DataBufferInt;
+import java.awt.image.DataBufferUShort;
+import java.awt.image.DirectColorModel;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Base64;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import javax.imageio.ImageIO;
 
@@ -44,17 +63,22 @@ import net.imagej.Dataset;
 import net.imagej.axis.Axes;
 import net.imagej.display.ColorTables;
 import net.imagej.notebook.NotebookService.ValueScaling;
+import net.imglib2.Cursor;
 import net.imglib2.IterableInterval;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.algorithm.stats.ComputeMinMax;
-import net.imglib2.converter.Converter;
-import net.imglib2.converter.RealLUTConverter;
 import net.imglib2.display.ColorTable8;
-import net.imglib2.display.projector.composite.CompositeXYProjector;
 import net.imglib2.display.screenimage.awt.ARGBScreenImage;
 import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.img.planar.PlanarImg;
 import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.IntegerType;
 import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
 import net.imglib2.util.Util;
 import net.imglib2.view.IntervalView;
 import net.imglib2.view.Views;
@@ -68,6 +92,19 @@ import net.imglib2.view.Views;
  */
 public final class Images {
 
+	/**
+	 * A renderer per thread, whose converters and lookup tables (e.g., the
+	 * 65536 entries of a 16-bit image's) are reused from one call to the next.
+	 */
+	private static final ThreadLocal<Renderer<?>> RENDERERS = ThreadLocal
+		.withInitial(Renderer::new);
+
+	/**
+	 * The largest width and height of a sprite sheet, in pixels. Browsers and
+	 * PNG decoders commonly refuse (or choke on) larger images.
+	 */
+	public static final int MAX_SHEET_SIZE = 16384;
+
 	private Images() {
 		// Prevent instantiation of utility class.
 	}
@@ -95,8 +132,11 @@ public final class Images {
 	public static byte[] encode(final RenderedImage image, final String format)
 		throws IOException
 	{
+		final Metrics metrics = Metrics.active();
+		final long start = metrics == null ? 0 : System.nanoTime();
 		final ByteArrayOutputStream baos = new ByteArrayOutputStream();
 		final boolean success = ImageIO.write(image, format, baos);
+		if (metrics != null) metrics.record("image.encode", start, baos.size());
 		return success ? baos.toByteArray() : null;
 	}
 
@@ -111,6 +151,129 @@ public final class Images {
 		return ImageIO.read(new ByteArrayInputStream(data));
 	}
 
+	/**
+	 * Decodes the given bytes into an ImgLib2 image, without copying the
+	 * decoded pixels. See {@link #wrap(BufferedImage)}.
+	 *
+	 * @param data The bytes to decode, in any format supported by
+	 *          {@link ImageIO}; e.g., PNG or JPEG.
+	 * @return The decoded image, or null if an image cannot be decoded from the
+	 *         specified data.
+	 */
+	public static ArrayImg<?, ?> decodeImg(final byte[] data)
+		throws IOException
+	{
+		final BufferedImage image = decode(data);
+		return image == null ? null : wrap(image);
+	}
+
+	/**
+	 * Decodes the remaining bytes of the given buffer into an ImgLib2 image,
+	 * without copying the decoded pixels. The buffer's position is not changed.
+	 * See {@link #wrap(BufferedImage)}.
+	 *
+	 * @param data The bytes to decode, in any format supported by
+	 *          {@link ImageIO}; e.g., PNG or JPEG.
+	 * @return The decoded image, or null if an image cannot be decoded from the
+	 *         specified data.
+	 */
+	public static ArrayImg<?, ?> decodeImg(final ByteBuffer data)
+		throws IOException
+	{
+		final BufferedImage image = ImageIO.read(new ByteBufferInputStream(data
+			.duplicate()));
+		return image == null ? null : wrap(image);
+	}
+
+	/**
+	 * Decodes the given file into an ImgLib2 image. The file is memory-mapped
+	 * rather than read into a byte array, and the decoded pixels are not
+	 * copied. See {@link #wrap(BufferedImage)}.
+	 *
+	 * @param path The file to decode, in any format supported by
+	 *          {@link ImageIO}; e.g., PNG or JPEG.
+	 * @return The decoded image, or null if an image cannot be decoded from the
+	 *         specified file.
+	 */
+	public static ArrayImg<?, ?> decodeImg(final Path path) throws IOException {
+		try (final FileChannel channel = FileChannel.open(path,
+			StandardOpenOption.READ))
+		{
+			return decodeImg(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Wraps the given {@link BufferedImage} as an ImgLib2 image.
+	 * <p>
+	 * Where possible, the image's pixel array is used directly as the backing
+	 * array of the result, so that changes to either are visible in both:
+	 * </p>
+	 * <ul>
+	 * <li>{@link BufferedImage#TYPE_INT_ARGB} and
+	 * {@link BufferedImage#TYPE_INT_RGB} images become XY {@link ARGBType}
+	 * images (with zero alpha for {@code TYPE_INT_RGB}).</li>
+	 * <li>{@link BufferedImage#TYPE_BYTE_GRAY} and
+	 * {@link BufferedImage#TYPE_USHORT_GRAY} images become XY
+	 * {@link UnsignedByteType} and {@link UnsignedShortType} images.</li>
+	 * <li>{@link BufferedImage#TYPE_3BYTE_BGR} and
+	 * {@link BufferedImage#TYPE_4BYTE_ABGR} images become CXY
+	 * {@link UnsignedByteType} images, with the channels in the image's (BGR or
+	 * ABGR) order.</li>
+	 * </ul>
+	 * <p>
+	 * Any other image (e.g., an indexed or sub-image) is copied into a new XY
+	 * {@link ARGBType} image.
+	 * </p>
+	 *
+	 * @param image The image to wrap.
+	 * @return An image backed by the same pixel array if possible, or else by a
+	 *         copy of the pixels.
+	 */
+	public static ArrayImg<?, ?> wrap(final BufferedImage image) {
+		final int w = image.getWidth(), h = image.getHeight();
+		final WritableRaster raster = image.getRaster();
+		final DataBuffer buffer = raster.getDataBuffer();
+		final boolean whole = buffer.getNumBanks() == 1 && //
+			buffer.getOffset() == 0 && raster.getSampleModelTranslateX() == 0 && //
+			raster.getSampleModelTranslateY() == 0;
+		if (whole) {
+			switch (image.getType()) {
+				case BufferedImage.TYPE_INT_ARGB:
+				case BufferedImage.TYPE_INT_RGB: {
+					final int[] data = ((DataBufferInt) buffer).getData();
+					if (data.length == w * h) return ArrayImgs.argbs(data, w, h);
+					break;
+				}
+				case BufferedImage.TYPE_BYTE_GRAY: {
+					final byte[] data = ((DataBufferByte) buffer).getData();
+					if (data.length == w * h) return ArrayImgs.unsignedBytes(data, w, h);
+					break;
+				}
+				case BufferedImage.TYPE_USHORT_GRAY: {
+					final short[] data = ((DataBufferUShort) buffer).getData();
+					if (data.length == w * h) {
+						return ArrayImgs.unsignedShorts(data, w, h);
+					}
+					break;
+				}
+				case BufferedImage.TYPE_3BYTE_BGR:
+				case BufferedImage.TYPE_4BYTE_ABGR: {
+					final int bands = raster.getNumBands();
+					final byte[] data = ((DataBufferByte) buffer).getData();
+					if (data.length == bands * w * h) {
+						return ArrayImgs.unsignedBytes(data, bands, w, h);
+					}
+					break;
+				}
+				default:
+					break;
+			}
+		}
+		final int[] argb = image.getRGB(0, 0, w, h, null, 0, w);
+		return ArrayImgs.argbs(argb, w, h);
+	}
+
 	public static String base64(final RenderedImage image) throws IOException {
 		return Base64.getEncoder().encodeToString(encode(image));
 	}
@@ -122,10 +285,72 @@ public final class Images {
 	public static String html(final RenderedImage image, final String title)
 		throws IOException
 	{
+		final Metrics metrics = Metrics.active();
+		final long start = metrics == null ? 0 : System.nanoTime();
 		final String titleAttributes = title == null ? "" : //
 			"alt=\"" + title + "\" title=\"" + title + "\" ";
-		return "<img src=\"data:image/png;charset=utf-8;base64," + //
+		final String html = "<img src=\"data:image/png;charset=utf-8;base64," + //
 			base64(image) + "\" " + titleAttributes + "/>";
+		if (metrics != null) metrics.record("image.html", start, html);
+		return html;
+	}
+
+	/**
+	 * Shrinks the given image, if needed, so that neither its width nor its
+	 * height exceeds the given size, preserving its aspect ratio.
+	 * <p>
+	 * The image is repeatedly halved by averaging each 2x2 block of pixels, then
+	 * scaled bilinearly to its final size, which approximates area averaging at
+	 * a fraction of its cost. The result has the same color model as the image,
+	 * so e.g. grayscale images stay grayscale; samples are averaged band by
+	 * band, except for indexed colors, which are averaged as RGB.
+	 * </p>
+	 *
+	 * @param image The image to shrink.
+	 * @param maxDimension The maximum width and height of the result.
+	 * @return A shrunken copy of the image, or the image itself if it already
+	 *         fits.
+	 * @throws IllegalArgumentException if the maximum dimension is not
+	 *           positive.
+	 */
+	public static BufferedImage downscale(final BufferedImage image,
+		final int maxDimension)
+	{
+		if (maxDimension <= 0) {
+			throw new IllegalArgumentException("Invalid maximum dimension: " +
+				maxDimension);
+		}
+		final int w = image.getWidth(), h = image.getHeight();
+		if (w <= maxDimension && h <= maxDimension) return image;
+		final double factor = (double) maxDimension / Math.max(w, h);
+		final int targetW = Math.max(1, (int) Math.round(w * factor));
+		final int targetH = Math.max(1, (int) Math.round(h * factor));
+
+		// Halve the image while it is at least twice the target size.
+		BufferedImage halved = image;
+		while (halved.getWidth() >= 2 * targetW && //
+			halved.getHeight() >= 2 * targetH)
+		{
+			halved = halve(halved);
+		}
+		if (halved.getWidth() == targetW && halved.getHeight() == targetH &&
+			halved.getType() == image.getType() && //
+			halved.getColorModel().equals(image.getColorModel()))
+		{
+			return halved;
+		}
+
+		final BufferedImage result = compatibleImage(image, targetW, targetH);
+		final Graphics2D g = result.createGraphics();
+		try {
+			g.setRenderingHint(RenderingHints.KEY_INTERPOLATION,
+				RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			g.drawImage(halved, 0, 0, targetW, targetH, null);
+		}
+		finally {
+			g.dispose();
+		}
+		return result;
 	}
 
 	/**
@@ -236,34 +461,18 @@ public final class Images {
 		final RandomAccessibleInterval<T> source, final int xAxis, final int yAxis,
 		final int cAxis, final ValueScaling scaling, final long... pos)
 	{
-		final double min, max;
-		final boolean full = scaling == ValueScaling.FULL || //
-			scaling == ValueScaling.AUTO && isNarrowType(source);
-
-		final T firstElement = Views.iterable(source).firstElement();
-
-		if (full) {
-			// scale the intensities based on the full range of the type
-			min = firstElement.getMinValue();
-			max = firstElement.getMaxValue();
-		}
-		else {
-			// scale the intensities based on the sample values
-			final IterableInterval<T> ii = Views.flatIterable(source);
-			final T tMin = ii.firstElement().createVariable();
-			final T tMax = tMin.createVariable();
-			ComputeMinMax.computeMinMax(source, tMin, tMax);
-			min = tMin.getRealDouble();
-			max = tMax.getRealDouble();
-		}
+		final Metrics metrics = Metrics.active();
+		final long start = metrics == null ? 0 : System.nanoTime();
+		final double[] range = range(source, scaling);
+		if (metrics != null) metrics.record("image.range", start);
 
 		// create arrays from generated min/max
 		final int arraySize = cAxis >= 0 ? (int) source.dimension(cAxis) : 1;
 		final double[] minArray = new double[arraySize];
 		final double[] maxArray = new double[arraySize];
 		for (int i = 0; i < minArray.length; i++) {
-			minArray[i] = min;
-			maxArray[i] = max;
+			minArray[i] = range[0];
+			maxArray[i] = range[1];
 		}
 
 		return bufferedImage(source, xAxis, yAxis, cAxis, minArray, maxArray, pos);
@@ -288,36 +497,524 @@ public final class Images {
 		final RandomAccessibleInterval<T> source, final int xAxis, final int yAxis,
 		final int cAxis, final double[] min, final double[] max, final long... pos)
 	{
+		return bufferedImage(source, xAxis, yAxis, cAxis, min, max, null, pos);
+	}
+
+	/**
+	 * Converts the given {@link RandomAccessibleInterval} to a
+	 * {@link BufferedImage}.
+	 *
+	 * @param source The image to render.
+	 * @param xAxis The image dimension to use for the X axis.
+	 * @param yAxis The image dimension to use for the Y axis.
+	 * @param cAxis The image dimension to use for compositing multiple channels,
+	 *          or -1 for no compositing.
+	 * @param min The minimum value per channel allowed on the display
+	 * @param max The maximum value per channel allowed on the display
+	 * @param luts The color table per channel, or null to use the default color
+	 *          tables.
+	 * @param pos Dimensional position of the image. Passing null or the empty
+	 *          array will display the default (typically the first) position.
+	 * @return {@link BufferedImage} representation.
+	 */
+	public static <T extends RealType<T>> BufferedImage bufferedImage(
+		final RandomAccessibleInterval<T> source, final int xAxis, final int yAxis,
+		final int cAxis, final double[] min, final double[] max,
+		final ColorTable8[] luts, final long... pos)
+	{
+		final Metrics metrics = Metrics.active();
+		final long start = metrics == null ? 0 : System.nanoTime();
+		@SuppressWarnings("unchecked")
+		final Renderer<T> renderer = (Renderer<T>) RENDERERS.get();
+		final BufferedImage image;
+		try {
+			image = renderer.render(source, xAxis, yAxis, cAxis, min, max, luts,
+				pos);
+		}
+		finally {
+			// NB: The image returned must not be overwritten by the next call.
+			renderer.detach();
+		}
+		if (metrics != null) metrics.record("image.project", start);
+		return image;
+	}
+
+	/**
+	 * Converts an XY plane of the given {@link ARGBType} image to a
+	 * {@link BufferedImage}, ignoring alpha.
+	 * <p>
+	 * For {@link ArrayImg}s and {@link PlanarImg}s, the plane's {@code int[]}
+	 * pixels are used directly as the raster of the result, without copying.
+	 * Other images are copied with a single cursor.
+	 * </p>
+	 *
+	 * @param source The image to render. Dimensions 0 and 1 are used as the X
+	 *          and Y axes.
+	 * @param pos Dimensional position of the plane. Passing null or the empty
+	 *          array will display the default (typically the first) position.
+	 * @return {@link BufferedImage} representation.
+	 */
+	public static BufferedImage argbImage(
+		final RandomAccessibleInterval<ARGBType> source, final long... pos)
+	{
+		final int w = (int) source.dimension(0);
+		final int h = source.numDimensions() > 1 ? (int) source.dimension(1) : 1;
+		final int planeSize = w * h;
+
+		// Locate the plane within its backing array, if possible.
+		long planeIndex = 0, stride = 1;
+		for (int d = 2; d < source.numDimensions(); d++) {
+			planeIndex += (pos != null && pos.length > d ? pos[d] : 0) * stride;
+			stride *= source.dimension(d);
+		}
+		Object access = null;
+		int offset = 0;
+		if (source instanceof ArrayImg) {
+			access = ((ArrayImg<?, ?>) source).update(null);
+			offset = (int) planeIndex * planeSize;
+		}
+		else if (source instanceof PlanarImg) {
+			access = ((PlanarImg<?, ?>) source).getPlane((int) planeIndex);
+		}
+
+		final DataBufferInt buffer;
+		if (access instanceof IntArray) {
+			buffer = new DataBufferInt(((IntArray) access).getCurrentStorageArray(),
+				planeSize, offset);
+		}
+		else {
+			RandomAccessibleInterval<ARGBType> plane = Views.zeroMin(source);
+			for (int d = plane.numDimensions() - 1; d >= 2; d--) {
+				plane = Views.hyperSlice(plane, d, pos != null && pos.length > d
+					? pos[d] : 0);
+			}
+			final int[] data = new int[planeSize];
+			final Cursor<ARGBType> cursor = Views.flatIterable(plane).cursor();
+			for (int i = 0; i < planeSize; i++) {
+				data[i] = cursor.next().get();
+			}
+			buffer = new DataBufferInt(data, planeSize);
+		}
+		final DirectColorModel rgb = //
+			new DirectColorModel(24, 0xff0000, 0x00ff00, 0x0000ff);
+		final WritableRaster raster = Raster.createPackedRaster(buffer, w, h, w,
+			rgb.getMasks(), null);
+		return new BufferedImage(rgb, raster, false, null);
+	}
+
+	/**
+	 * Computes the display range of the given {@link RandomAccessibleInterval}
+	 * according to the specified {@link ValueScaling} strategy.
+	 *
+	 * @param source The image whose range should be computed.
+	 * @param scaling Value scaling strategy; see {@link ValueScaling}.
+	 * @return A two-element array containing the minimum and maximum values.
+	 */
+	public static <T extends RealType<T>> double[] range(
+		final RandomAccessibleInterval<T> source, final ValueScaling scaling)
+	{
+		final boolean full = scaling == ValueScaling.FULL || //
+			scaling == ValueScaling.AUTO && isNarrowType(source);
+
+		final T firstElement = Views.iterable(source).firstElement();
+
+		if (full) {
+			// scale the intensities based on the full range of the type
+			return new double[] { firstElement.getMinValue(), firstElement
+				.getMaxValue() };
+		}
+
+		// scale the intensities based on the sample values
+		final IterableInterval<T> ii = Views.flatIterable(source);
+		final T tMin = ii.firstElement().createVariable();
+		final T tMax = tMin.createVariable();
+		ComputeMinMax.computeMinMax(source, tMin, tMax);
+		return new double[] { tMin.getRealDouble(), tMax.getRealDouble() };
+	}
+
+	/**
+	 * Renders every plane along the given axis of a
+	 * {@link RandomAccessibleInterval} into a single sprite sheet, with the
+	 * planes stacked vertically from top to bottom. All planes share the same
+	 * contrast settings, and are rendered in parallel on the JVM's common
+	 * {@link java.util.concurrent.ForkJoinPool}.
+	 *
+	 * @param source The image to render.
+	 * @param xAxis The image dimension to use for the X axis.
+	 * @param yAxis The image dimension to use for the Y axis.
+	 * @param cAxis The image dimension to use for compositing multiple channels,
+	 *          or -1 for no compositing.
+	 * @param axis The image dimension along which to step through the planes.
+	 * @param min The minimum value per channel allowed on the display.
+	 * @param max The maximum value per channel allowed on the display.
+	 * @return {@link BufferedImage} containing all of the planes, one atop the
+	 *         next.
+	 */
+	public static <T extends RealType<T>> BufferedImage spriteSheet(
+		final RandomAccessibleInterval<T> source, final int xAxis, final int yAxis,
+		final int cAxis, final int axis, final double[] min, final double[] max)
+	{
+		return spriteSheet(source, xAxis, yAxis, cAxis, axis, min, max, Execution
+			.common());
+	}
+
+	/**
+	 * Renders every plane along the given axis of a
+	 * {@link RandomAccessibleInterval} into a single sprite sheet, with the
+	 * planes stacked vertically from top to bottom. All planes share the same
+	 * contrast settings, and are rendered in parallel on the given backend.
+	 * <p>
+	 * The sheet is at most {@link #MAX_SHEET_SIZE} pixels high: once a column
+	 * of planes is full, the next plane starts a new column to its right.
+	 * </p>
+	 *
+	 * @param source The image to render.
+	 * @param xAxis The image dimension to use for the X axis.
+	 * @param yAxis The image dimension to use for the Y axis.
+	 * @param cAxis The image dimension to use for compositing multiple channels,
+	 *          or -1 for no compositing.
+	 * @param axis The image dimension along which to step through the planes.
+	 * @param min The minimum value per channel allowed on the display.
+	 * @param max The maximum value per channel allowed on the display.
+	 * @param execution The backend on which to render the planes.
+	 * @return {@link BufferedImage} containing all of the planes, one atop the
+	 *         next, in as many columns as needed.
+	 * @throws IllegalArgumentException if the planes do not fit into a sheet
+	 *           of at most {@link #MAX_SHEET_SIZE} pixels on each side.
+	 */
+	public static <T extends RealType<T>> BufferedImage spriteSheet(
+		final RandomAccessibleInterval<T> source, final int xAxis, final int yAxis,
+		final int cAxis, final int axis, final double[] min, final double[] max,
+		final Execution execution)
+	{
+		if (axis < 0 || axis >= source.numDimensions() || axis == xAxis ||
+			axis == yAxis || axis == cAxis)
+		{
+			throw new IllegalArgumentException("Invalid stack axis: " + axis);
+		}
 		final IntervalView<T> image = Views.zeroMin(source);
 
-		final int w = xAxis >= 0 ? (int) image.dimension(xAxis) : 1;
-		final int h = yAxis >= 0 ? (int) image.dimension(yAxis) : 1;
-		final int c = cAxis >= 0 ? (int) image.dimension(cAxis) : 1;
-		final ARGBScreenImage target = new ARGBScreenImage(w, h);
-		final ArrayList<Converter<T, ARGBType>> converters = new ArrayList<>(c);
+		final long width = xAxis >= 0 ? image.dimension(xAxis) : 1;
+		final long height = yAxis >= 0 ? image.dimension(yAxis) : 1;
+		final long planeCount = image.dimension(axis);
+		if (width < 1 || height < 1 || width > MAX_SHEET_SIZE ||
+			height > MAX_SHEET_SIZE)
+		{
+			throw new IllegalArgumentException("Cannot render planes of " + width +
+				" x " + height + " into a sprite sheet");
+		}
+		final int w = (int) width, h = (int) height;
+		final int rows = (int) Math.max(1, Math.min(planeCount, MAX_SHEET_SIZE /
+			h));
+		final long columns = (planeCount + rows - 1) / rows;
+		if (columns * w > MAX_SHEET_SIZE) {
+			throw new IllegalArgumentException("Stack of " + planeCount +
+				" planes of " + w + " x " + h + " is too large for a sprite sheet");
+		}
+		final int sheetWidth = (int) columns * w;
+
+		final ARGBScreenImage sheet = new ARGBScreenImage(sheetWidth, h * rows);
+		final int[] sheetData = sheet.getData();
+		// NB: Each plane is copied out of the renderer's target, so the
+		// renderers, one per thread at work, are reused from plane to plane.
+		final Queue<Renderer<T>> renderers = new ConcurrentLinkedQueue<>();
+		execution.forEach((int) planeCount, p -> {
+			final long[] pos = new long[image.numDimensions()];
+			pos[axis] = p;
+			Renderer<T> renderer = renderers.poll();
+			if (renderer == null) renderer = new Renderer<>();
+			final ARGBScreenImage plane = renderer.map(image, xAxis, yAxis, cAxis,
+				min, max, null, pos);
+			final int[] planeData = plane.getData();
+			final int offset = (p % rows) * h * sheetWidth + (p / rows) * w;
+			for (int y = 0; y < h; y++) {
+				System.arraycopy(planeData, y * w, sheetData, offset + y *
+					sheetWidth, w);
+			}
+			renderers.offer(renderer);
+		});
+		return sheet.image();
+	}
 
-		if (min.length != c || max.length != c) throw new IllegalArgumentException(
-			"clamping arrays must be of the same length as the number of channels!");
+	/**
+	 * Converts a sprite sheet with a single column of planes into an HTML
+	 * fragment with a slider for scrubbing through the planes.
+	 *
+	 * @param sheet The sprite sheet, with planes stacked vertically.
+	 * @param planeHeight The height in pixels of each plane.
+	 * @param title The title of the image, or null for no title.
+	 * @return An HTML string embedding the sheet as a single PNG image.
+	 * @see #stackHTML(RenderedImage, int, int, long, String)
+	 */
+	public static String stackHTML(final RenderedImage sheet,
+		final int planeHeight, final String title) throws IOException
+	{
+		return stackHTML(sheet, sheet.getWidth(), planeHeight, sheet.getHeight() /
+			planeHeight, title);
+	}
 
-		for (int i = 0; i < c; i++) {
-			final ColorTable8 lut = c == 1 ? //
-				ColorTables.GRAYS : ColorTables.getDefaultColorTable(i);
-			converters.add(new RealLUTConverter<T>(min[i], max[i], lut));
+	/**
+	 * Converts a sprite sheet, as produced by
+	 * {@link #spriteSheet(RandomAccessibleInterval, int, int, int, int, double[], double[])},
+	 * into an HTML fragment with a slider for scrubbing through the planes.
+	 *
+	 * @param sheet The sprite sheet, with planes stacked vertically, in as
+	 *          many columns as needed.
+	 * @param planeWidth The width in pixels of each plane.
+	 * @param planeHeight The height in pixels of each plane.
+	 * @param planeCount The number of planes.
+	 * @param title The title of the image, or null for no title.
+	 * @return An HTML string embedding the sheet as a single PNG image.
+	 */
+	public static String stackHTML(final RenderedImage sheet,
+		final int planeWidth, final int planeHeight, final long planeCount,
+		final String title) throws IOException
+	{
+		final int rows = sheet.getHeight() / planeHeight;
+		final String titleAttributes = title == null ? "" : //
+			"alt=\"" + title + "\" title=\"" + title + "\" ";
+		// NB: A single column only needs to move the sheet up.
+		final String offset = rows >= planeCount ? //
+			"style.marginTop=(-this.value*" + planeHeight + ")+'px';" : //
+			"style.marginTop=(-(this.value%" + rows + ")*" + planeHeight + //
+				")+'px';" + //
+				"this.parentNode.querySelector('img').style.marginLeft=" + //
+				"(-Math.floor(this.value/" + rows + ")*" + planeWidth + ")+'px';";
+		return "<div class=\"scijava-stack\">" + //
+			"<div style=\"width:" + planeWidth + "px;height:" + planeHeight + //
+			"px;overflow:hidden\">" + //
+			"<img src=\"data:image/png;charset=utf-8;base64," + base64(sheet) + //
+			"\" " + titleAttributes + "style=\"display:block;margin-top:0\"/>" + //
+			"</div>" + //
+			"<input type=\"range\" min=\"0\" max=\"" + (planeCount - 1) + //
+			"\" value=\"0\" style=\"width:" + planeWidth + "px\" oninput=\"" + //
+			"this.parentNode.querySelector('img')." + offset + //
+			"this.parentNode.querySelector('span').textContent=this.value\"/>" + //
+			"<span>0</span></div>";
+	}
+
+	/**
+	 * Converts an XY plane of the given {@link RandomAccessibleInterval} into an
+	 * HTML fragment whose contrast can be adjusted in the browser.
+	 * <p>
+	 * The plane's samples are embedded once, quantized to 16 bits (losslessly,
+	 * for integer types spanning at most 65536 values), along with the color
+	 * table. Sliders for the display minimum and maximum then recolor a canvas
+	 * in the browser, without any further calls to the kernel.
+	 * </p>
+	 *
+	 * @param source The image to render. Dimensions 0 and 1 are used as the X
+	 *          and Y axes.
+	 * @param min The initial minimum value allowed on the display.
+	 * @param max The initial maximum value allowed on the display.
+	 * @param lut The color table, or null for grayscale.
+	 * @param pos Dimensional position of the plane. Passing null or the empty
+	 *          array will display the default (typically the first) position.
+	 * @return An HTML string embedding the plane and the script which draws it.
+	 */
+	public static <T extends RealType<T>> String adjustableHTML(
+		final RandomAccessibleInterval<T> source, final double min,
+		final double max, final ColorTable8 lut, final long... pos)
+	{
+		RandomAccessibleInterval<T> plane = Views.zeroMin(source);
+		for (int d = plane.numDimensions() - 1; d >= 2; d--) {
+			plane = Views.hyperSlice(plane, d, pos != null && pos.length > d
+				? pos[d] : 0);
+		}
+		final int w = (int) plane.dimension(0);
+		final int h = plane.numDimensions() > 1 ? (int) plane.dimension(1) : 1;
+
+		// Quantize the samples to 16 bits, relative to their minimum.
+		final double[] dataRange = range(plane, ValueScaling.DATA);
+		final double lo = dataRange[0], span = dataRange[1] - dataRange[0];
+		final boolean exact = Util.getTypeFromInterval(
+			plane) instanceof IntegerType && span <= 0xffff;
+		final double scale = exact || span == 0 ? 1 : span / 0xffff;
+		final byte[] samples = new byte[2 * w * h];
+		final Cursor<T> cursor = Views.flatIterable(plane).cursor();
+		for (int i = 0; i < samples.length; i += 2) {
+			final double v = (cursor.next().getRealDouble() - lo) / scale;
+			final int q = v >= 0xffff ? 0xffff : v > 0 ? (int) Math.round(v) : 0;
+			samples[i] = (byte) q;
+			samples[i + 1] = (byte) (q >> 8);
 		}
-		final CompositeXYProjector<T> proj = new CompositeXYProjector<>(image,
-			target, converters, cAxis);
-		if (pos != null && pos.length > 0) proj.setPosition(pos);
-		proj.setComposite(true);
-		proj.map();
 
-		return target.image();
+		final ColorTable8 colors = lut == null ? ColorTables.GRAYS : lut;
+		final byte[] palette = new byte[3 * colors.getLength()];
+		for (int i = 0; i < colors.getLength(); i++) {
+			final int argb = colors.argb(i);
+			palette[3 * i] = (byte) (argb >> 16);
+			palette[3 * i + 1] = (byte) (argb >> 8);
+			palette[3 * i + 2] = (byte) argb;
+		}
+
+		final double sliderMin = Math.min(lo, min);
+		final double sliderMax = Math.max(dataRange[1], max);
+		final double step = exact ? 1 : (sliderMax - sliderMin) / 1000;
+		final String id = "scijava-adjustable-" + UUID.randomUUID();
+		final String slider = "<input type=\"range\" min=\"" + sliderMin + //
+			"\" max=\"" + sliderMax + "\" step=\"" + step + "\" ";
+		final Base64.Encoder base64 = Base64.getEncoder();
+		return "<div id=\"" + id + "\" class=\"scijava-adjustable\">" + //
+			"<canvas width=\"" + w + "\" height=\"" + h + "\"></canvas><br/>" + //
+			"min " + slider + "class=\"min\" value=\"" + min + "\"/> " + //
+			"max " + slider + "class=\"max\" value=\"" + max + "\"/> " + //
+			"<span></span><script>(function(){" + //
+			"var root=document.getElementById('" + id + "')," + //
+			"g=root.querySelector('canvas').getContext('2d')," + //
+			"lo=" + lo + ",scale=" + scale + ";" + //
+			"function bytes(s){var b=atob(s),a=new Uint8Array(b.length);" + //
+			"for(var i=0;i<b.length;i++)a[i]=b.charCodeAt(i);return a;}" + //
+			"var q=new Uint16Array(bytes('" + base64.encodeToString(samples) + //
+			"').buffer),pal=bytes('" + base64.encodeToString(palette) + "')," + //
+			"n=pal.length/3,img=g.createImageData(" + w + "," + h + ")," + //
+			"d=img.data,lut=new Uint8Array(65536);" + //
+			"function draw(){" + //
+			"var mn=+root.querySelector('.min').value," + //
+			"mx=+root.querySelector('.max').value;" + //
+			"for(var v=0;v<65536;v++){var x=lo+v*scale," + //
+			"b=mx>mn?Math.floor((x-mn)/(mx-mn)*n):x<mn?0:n-1;" + //
+			"lut[v]=b<0?0:b>=n?n-1:b;}" + //
+			"for(var i=0,j=0;i<q.length;i++,j+=4){var k=3*lut[q[i]];" + //
+			"d[j]=pal[k];d[j+1]=pal[k+1];d[j+2]=pal[k+2];d[j+3]=255;}" + //
+			"g.putImageData(img,0,0);" + //
+			"root.querySelector('span').textContent=mn+' - '+mx;}" + //
+			"root.querySelector('.min').oninput=draw;" + //
+			"root.querySelector('.max').oninput=draw;draw();})();</script></div>";
 	}
 
 	// -- Helper methods --
 
+	/**
+	 * Guesses which dimension of the given image holds its channels.
+	 * <p>
+	 * NB: Assume <=3 samples in the 3rd dimension means channels. Of course, we
+	 * have no metadata with a vanilla RAI, but this is a best guess; 3rd
+	 * dimensions with >3 samples are probably something like Z or time.
+	 * </p>
+	 */
+	static int channelAxis(final RandomAccessibleInterval<?> source) {
+		return source.numDimensions() > 2 && source.dimension(2) <= 3 ? 2 : -1;
+	}
+
+	/** Gets the default color table for the given channel. */
+	static ColorTable8 defaultColorTable(final int channel,
+		final int channelCount)
+	{
+		return channelCount == 1 ? //
+			ColorTables.GRAYS : ColorTables.getDefaultColorTable(channel);
+	}
+
+	/**
+	 * Halves the given image by averaging each 2x2 block of pixels, one row of
+	 * blocks at a time.
+	 */
+	private static BufferedImage halve(final BufferedImage image) {
+		final int w = image.getWidth() / 2, h = image.getHeight() / 2;
+		final Raster src = image.getRaster();
+		if (image.getColorModel() instanceof IndexColorModel || //
+			src.getTransferType() == DataBuffer.TYPE_FLOAT || //
+			src.getTransferType() == DataBuffer.TYPE_DOUBLE)
+		{
+			// NB: Averaging indices or truncating samples would mix up colors.
+			final BufferedImage result = //
+				new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB);
+			final int[] top = new int[2 * w], bottom = new int[2 * w];
+			final int[] row = new int[w];
+			for (int y = 0; y < h; y++) {
+				image.getRGB(0, 2 * y, 2 * w, 1, top, 0, 2 * w);
+				image.getRGB(0, 2 * y + 1, 2 * w, 1, bottom, 0, 2 * w);
+				for (int x = 0; x < w; x++) {
+					row[x] = average(top[2 * x], top[2 * x + 1], bottom[2 * x],
+						bottom[2 * x + 1]);
+				}
+				result.setRGB(0, y, w, 1, row, 0, w);
+			}
+			return result;
+		}
+		final BufferedImage result = compatibleImage(image, w, h);
+		final WritableRaster dst = result.getRaster();
+		final int bands = src.getNumBands();
+		final int[] top = new int[2 * w * bands], bottom = new int[2 * w * bands];
+		final int[] row = new int[w * bands];
+		for (int y = 0; y < h; y++) {
+			src.getPixels(0, 2 * y, 2 * w, 1, top);
+			src.getPixels(0, 2 * y + 1, 2 * w, 1, bottom);
+			for (int x = 0; x < w; x++) {
+				for (int b = 0; b < bands; b++) {
+					final int i = 2 * x * bands + b, j = i + bands;
+					row[x * bands + b] = (top[i] + top[j] + bottom[i] + bottom[j] + 2) /
+						4;
+				}
+			}
+			dst.setPixels(0, y, w, 1, row);
+		}
+		return result;
+	}
+
+	/** Creates an image of the given size with the type of another. */
+	private static BufferedImage compatibleImage(final BufferedImage image,
+		final int w, final int h)
+	{
+		final int type = image.getType();
+		final ColorModel cm = image.getColorModel();
+		if (type == BufferedImage.TYPE_BYTE_INDEXED ||
+			type == BufferedImage.TYPE_BYTE_BINARY)
+		{
+			return new BufferedImage(w, h, type, (IndexColorModel) cm);
+		}
+		if (type != BufferedImage.TYPE_CUSTOM) return new BufferedImage(w, h, type);
+		return new BufferedImage(cm, cm.createCompatibleWritableRaster(w, h), cm
+			.isAlphaPremultiplied(), null);
+	}
+
+	/** Averages four ARGB values component-wise. */
+	private static int average(final int p1, final int p2, final int p3,
+		final int p4)
+	{
+		int result = 0;
+		for (int shift = 0; shift < 32; shift += 8) {
+			final int sum = (p1 >>> shift & 0xff) + (p2 >>> shift & 0xff) + //
+				(p3 >>> shift & 0xff) + (p4 >>> shift & 0xff);
+			result |= (sum + 2) / 4 << shift;
+		}
+		return result;
+	}
+
 	private static <T extends RealType<T>> boolean isNarrowType(
 		final RandomAccessibleInterval<T> source)
 	{
 		return Util.getTypeFromInterval(source).getBitsPerPixel() <= 8;
 	}
+
+	// -- Helper classes --
+
+	/** Reads the remaining bytes of a buffer. */
+	private static class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		private ByteBufferInputStream(final ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
+		}
+
+		@Override
+		public int read(final byte[] b, final int off, final int len) {
+			if (len == 0) return 0;
+			if (!buffer.hasRemaining()) return -1;
+			final int n = Math.min(len, buffer.remaining());
+			buffer.get(b, off, n);
+			return n;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
 }
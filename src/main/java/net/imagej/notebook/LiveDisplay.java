@@ -0,0 +1,362 @@
+/*-
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2017 - 2018 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.notebook;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import net.imagej.notebook.mime.HTMLObject;
+import net.imglib2.Interval;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.display.screenimage.awt.ARGBScreenImage;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.view.Views;
+
+/**
+ * Handle to a displayed image which can be updated in place, e.g. to monitor
+ * the progress of a long-running operation.
+ * <p>
+ * The image plane is divided into square tiles, each encoded as its own PNG.
+ * Calling {@link #refresh(Interval)} re-renders only the tiles overlapping the
+ * given region, and re-encodes only those whose pixels actually changed.
+ * Updates are throttled to at most {@link #getMaxFrameRate()} per second; any
+ * refreshes arriving faster than that are coalesced into a single update.
+ * </p>
+ * <p>
+ * Each changed tile is pushed to the notebook on its own via a
+ * {@link TileSink}, when one is available (e.g., a grid of BeakerX HTML
+ * widgets), so an update only transfers the tiles which changed. Otherwise,
+ * the latest state can be shown by displaying the handle itself, since it is
+ * an {@link HTMLObject}.
+ * </p>
+ *
+ * @author Curtis Rueden
+ */
+public class LiveDisplay<T extends RealType<T>> implements HTMLObject {
+
+	/** Edge length in pixels of each independently encoded tile. */
+	public static final int TILE_SIZE = 256;
+
+	private static ScheduledExecutorService scheduler;
+
+	private final RandomAccessibleInterval<T> source;
+	private final int xAxis, yAxis, cAxis;
+	private final double[] min, max;
+	private final long[] pos;
+	private final TileSink sink;
+
+	private final int width, height, tilesX, tilesY;
+	private final int[] pixels;
+	private final String[] tiles;
+	private final Renderer<T> renderer = new Renderer<>();
+	private ARGBScreenImage tileImage;
+
+	private volatile Execution execution = Execution.common();
+	private long minInterval = 100;
+	private long lastUpdate;
+	private boolean updateScheduled;
+
+	/** Pending dirty region in plane coordinates, or null if none. */
+	private int[] dirty;
+
+	/**
+	 * Creates a live display of the given image.
+	 *
+	 * @param source The image to display.
+	 * @param xAxis The image dimension to use for the X axis.
+	 * @param yAxis The image dimension to use for the Y axis.
+	 * @param cAxis The image dimension to use for compositing multiple channels,
+	 *          or -1 for no compositing.
+	 * @param min The minimum value per channel allowed on the display.
+	 * @param max The maximum value per channel allowed on the display.
+	 * @param sink Callback receiving each tile whose pixels changed, or null if
+	 *          there is no way to push updates to the notebook.
+	 * @param pos Dimensional position of the image. Passing null or the empty
+	 *          array will display the default (typically the first) position.
+	 */
+	public LiveDisplay(final RandomAccessibleInterval<T> source, final int xAxis,
+		final int yAxis, final int cAxis, final double[] min, final double[] max,
+		final TileSink sink, final long... pos)
+	{
+		this.source = source;
+		this.xAxis = xAxis;
+		this.yAxis = yAxis;
+		this.cAxis = cAxis;
+		this.min = min.clone();
+		this.max = max.clone();
+		this.sink = sink;
+		this.pos = pos == null ? null : pos.clone();
+
+		width = xAxis >= 0 ? (int) source.dimension(xAxis) : 1;
+		height = yAxis >= 0 ? (int) source.dimension(yAxis) : 1;
+		tilesX = (width + TILE_SIZE - 1) / TILE_SIZE;
+		tilesY = (height + TILE_SIZE - 1) / TILE_SIZE;
+		pixels = new int[width * height];
+		tiles = new String[tilesX * tilesY];
+
+		refresh();
+	}
+
+	// -- LiveDisplay methods --
+
+	/** Re-renders the entire image. */
+	public void refresh() {
+		refresh(0, 0, width, height);
+	}
+
+	/**
+	 * Re-renders the given region of the image. Only the X and Y extents of the
+	 * region are considered.
+	 *
+	 * @param region The region of the source image which changed.
+	 */
+	public void refresh(final Interval region) {
+		int x0 = 0, y0 = 0, x1 = 1, y1 = 1;
+		if (xAxis >= 0) {
+			x0 = (int) (region.min(xAxis) - source.min(xAxis));
+			x1 = (int) (region.max(xAxis) - source.min(xAxis)) + 1;
+		}
+		if (yAxis >= 0) {
+			y0 = (int) (region.min(yAxis) - source.min(yAxis));
+			y1 = (int) (region.max(yAxis) - source.min(yAxis)) + 1;
+		}
+		refresh(x0, y0, x1, y1);
+	}
+
+	/** Gets the maximum number of updates pushed per second. */
+	public double getMaxFrameRate() {
+		return 1000.0 / minInterval;
+	}
+
+	/** Sets the maximum number of updates pushed per second. */
+	public synchronized void setMaxFrameRate(final double fps) {
+		if (fps <= 0) throw new IllegalArgumentException("Invalid frame rate: " +
+			fps);
+		minInterval = Math.max(1, (long) (1000 / fps));
+	}
+
+	/**
+	 * Sets the backend on whose I/O lane updates are encoded and pushed. By
+	 * default, this is the JVM's common
+	 * {@link java.util.concurrent.ForkJoinPool}.
+	 */
+	public void setExecution(final Execution execution) {
+		if (execution == null) throw new NullPointerException();
+		this.execution = execution;
+	}
+
+	// -- MIMEObject methods --
+
+	/**
+	 * Gets the HTML of the whole image. When the tiles are already being shown
+	 * via a {@link TileSink}, this is empty, so that displaying the handle does
+	 * not show the image a second time.
+	 */
+	@Override
+	public synchronized String data() {
+		if (sink != null) return "";
+		final StringBuilder sb = new StringBuilder();
+		sb.append("<div class=\"scijava-live\" style=\"position:relative;width:");
+		sb.append(width).append("px;height:").append(height).append("px\">");
+		for (int ty = 0; ty < tilesY; ty++) {
+			for (int tx = 0; tx < tilesX; tx++) {
+				sb.append("<img style=\"position:absolute;left:");
+				sb.append(tx * TILE_SIZE).append("px;top:");
+				sb.append(ty * TILE_SIZE).append("px\" ");
+				sb.append("src=\"data:image/png;charset=utf-8;base64,");
+				sb.append(tiles[ty * tilesX + tx]).append("\"/>");
+			}
+		}
+		sb.append("</div>");
+		return sb.toString();
+	}
+
+	// -- Helper methods --
+
+	private synchronized void refresh(final int x0, final int y0, final int x1,
+		final int y1)
+	{
+		// Clip to the plane, and expand to whole tiles.
+		final int tx0 = Math.max(0, x0) / TILE_SIZE;
+		final int ty0 = Math.max(0, y0) / TILE_SIZE;
+		final int tx1 = (Math.min(width, x1) + TILE_SIZE - 1) / TILE_SIZE;
+		final int ty1 = (Math.min(height, y1) + TILE_SIZE - 1) / TILE_SIZE;
+		if (tx0 >= tx1 || ty0 >= ty1) return;
+
+		if (dirty == null) dirty = new int[] { tx0, ty0, tx1, ty1 };
+		else {
+			dirty[0] = Math.min(dirty[0], tx0);
+			dirty[1] = Math.min(dirty[1], ty0);
+			dirty[2] = Math.max(dirty[2], tx1);
+			dirty[3] = Math.max(dirty[3], ty1);
+		}
+
+		final long wait = lastUpdate + minInterval - System.currentTimeMillis();
+		if (wait <= 0) update();
+		else if (!updateScheduled) {
+			updateScheduled = true;
+			// NB: The scheduler only keeps time; the update itself is encoding and
+			// transfer, so it runs on the I/O lane of the execution backend.
+			final Execution backend = execution;
+			scheduler().schedule(() -> backend.executeIO(this::scheduledUpdate),
+				wait, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private synchronized void scheduledUpdate() {
+		updateScheduled = false;
+		if (dirty != null) update();
+	}
+
+	/** Re-renders and re-encodes the pending dirty tiles, then pushes. */
+	private void update() {
+		final int tx0 = dirty[0], ty0 = dirty[1], tx1 = dirty[2], ty1 = dirty[3];
+		dirty = null;
+		lastUpdate = System.currentTimeMillis();
+
+		final int px0 = tx0 * TILE_SIZE, py0 = ty0 * TILE_SIZE;
+		final int px1 = Math.min(width, tx1 * TILE_SIZE);
+		final int py1 = Math.min(height, ty1 * TILE_SIZE);
+		final boolean[] changed = new boolean[tiles.length];
+		renderRegion(px0, py0, px1 - px0, py1 - py0, changed);
+
+		for (int ty = ty0; ty < ty1; ty++) {
+			for (int tx = tx0; tx < tx1; tx++) {
+				final int t = ty * tilesX + tx;
+				if (!changed[t] && tiles[t] != null) continue;
+				encodeTile(tx, ty);
+				if (sink != null) {
+					sink.accept(tx, ty, "<img style=\"display:block\" " + //
+						"src=\"data:image/png;charset=utf-8;base64," + tiles[t] + "\"/>");
+				}
+			}
+		}
+	}
+
+	/**
+	 * Renders the given region of the plane into the pixel buffer, flagging
+	 * each tile whose pixels differ from before.
+	 */
+	private void renderRegion(final int x, final int y, final int w,
+		final int h, final boolean[] changed)
+	{
+		final int n = source.numDimensions();
+		final long[] rMin = new long[n], rMax = new long[n];
+		source.min(rMin);
+		source.max(rMax);
+		if (xAxis >= 0) {
+			rMin[xAxis] += x;
+			rMax[xAxis] = rMin[xAxis] + w - 1;
+		}
+		if (yAxis >= 0) {
+			rMin[yAxis] += y;
+			rMax[yAxis] = rMin[yAxis] + h - 1;
+		}
+		final int[] region = renderer.map(Views.interval(source, rMin, rMax),
+			xAxis, yAxis, cAxis, min, max, null, pos).getData();
+		for (int row = 0; row < h; row++) {
+			final int ty = (y + row) / TILE_SIZE;
+			for (int px = x; px < x + w;) {
+				final int tx = px / TILE_SIZE;
+				final int end = Math.min(x + w, (tx + 1) * TILE_SIZE);
+				final int from = row * w + px - x, to = (y + row) * width + px;
+				final int t = ty * tilesX + tx;
+				if (!changed[t] && !same(region, from, pixels, to, end - px)) {
+					changed[t] = true;
+				}
+				System.arraycopy(region, from, pixels, to, end - px);
+				px = end;
+			}
+		}
+	}
+
+	/** Encodes the given tile from the pixel buffer. */
+	private void encodeTile(final int tx, final int ty) {
+		final int x = tx * TILE_SIZE, y = ty * TILE_SIZE;
+		final int w = Math.min(TILE_SIZE, width - x);
+		final int h = Math.min(TILE_SIZE, height - y);
+
+		if (tileImage == null || tileImage.dimension(0) != w || //
+			tileImage.dimension(1) != h)
+		{
+			tileImage = new ARGBScreenImage(w, h);
+		}
+		final int[] tileData = tileImage.getData();
+		for (int row = 0; row < h; row++) {
+			System.arraycopy(pixels, (y + row) * width + x, tileData, row * w, w);
+		}
+		try {
+			tiles[ty * tilesX + tx] = Images.base64(tileImage.image());
+		}
+		catch (final IOException exc) {
+			throw new IllegalStateException(exc);
+		}
+	}
+
+	/** Checks whether the given ranges of two arrays hold the same values. */
+	private static boolean same(final int[] a, final int aOffset, final int[] b,
+		final int bOffset, final int length)
+	{
+		for (int i = 0; i < length; i++) {
+			if (a[aOffset + i] != b[bOffset + i]) return false;
+		}
+		return true;
+	}
+
+	private static synchronized ScheduledExecutorService scheduler() {
+		if (scheduler == null) {
+			scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+				final Thread t = new Thread(r, "LiveDisplay-Updater");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		return scheduler;
+	}
+
+	// -- Helper classes --
+
+	/** Receives the tiles of a live display whose pixels changed. */
+	@FunctionalInterface
+	public interface TileSink {
+
+		/**
+		 * Receives the new HTML of the given tile.
+		 *
+		 * @param tx The column of the tile, counting from the left.
+		 * @param ty The row of the tile, counting from the top.
+		 * @param html An HTML image element showing the tile.
+		 */
+		void accept(int tx, int ty, String html);
+	}
+}
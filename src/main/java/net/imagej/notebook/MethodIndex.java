@@ -0,0 +1,151 @@
+/*-
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2017 - 2018 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.notebook;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+import org.scijava.util.ClassUtils;
+
+/**
+ * Presorted table of the public methods of a class, indexed by name for fast
+ * prefix queries.
+ * <p>
+ * Indices are computed once per class and cached for the lifetime of that
+ * class, via {@link #of(Class)}.
+ * </p>
+ *
+ * @author Curtis Rueden
+ */
+class MethodIndex {
+
+	private static final ClassValue<MethodIndex> INDICES =
+		new ClassValue<MethodIndex>()
+		{
+
+			@Override
+			protected MethodIndex computeValue(final Class<?> type) {
+				return new MethodIndex(type);
+			}
+		};
+
+	/** Method names, in sorted order. */
+	final String[] names;
+
+	/** Comma-separated argument types of each method. */
+	final String[] arguments;
+
+	/** Return type of each method. */
+	final String[] returns;
+
+	private MethodIndex(final Class<?> type) {
+		final Method[] methods = type.getMethods();
+		final Class<?>[][] pTypes = new Class<?>[methods.length][];
+		final Integer[] order = new Integer[methods.length];
+		for (int m = 0; m < methods.length; m++) {
+			pTypes[m] = methods[m].getParameterTypes();
+			order[m] = m;
+		}
+
+		// NB: Methods are returned in inconsistent order.
+		Arrays.sort(order, (i1, i2) -> {
+			final Method m1 = methods[i1], m2 = methods[i2];
+			final int nameComp = m1.getName().compareTo(m2.getName());
+			if (nameComp != 0) return nameComp;
+			final Class<?>[] pTypes1 = pTypes[i1], pTypes2 = pTypes[i2];
+			if (pTypes1.length != pTypes2.length) {
+				return pTypes1.length - pTypes2.length;
+			}
+			for (int i = 0; i < pTypes1.length; i++) {
+				final int typeComp = ClassUtils.compare(pTypes1[i], pTypes2[i]);
+				if (typeComp != 0) return typeComp;
+			}
+			return ClassUtils.compare(m1.getReturnType(), m2.getReturnType());
+		});
+
+		names = new String[methods.length];
+		arguments = new String[methods.length];
+		returns = new String[methods.length];
+		for (int i = 0; i < order.length; i++) {
+			final Method m = methods[order[i]];
+			names[i] = m.getName();
+			arguments[i] = arguments(pTypes[order[i]]);
+			returns[i] = m.getReturnType().getName();
+		}
+	}
+
+	/** Gets the method index of the given class. */
+	static MethodIndex of(final Class<?> type) {
+		return INDICES.get(type);
+	}
+
+	/** Gets the number of methods in the index. */
+	int size() {
+		return names.length;
+	}
+
+	/** Gets the index of the first method whose name starts with the prefix. */
+	int first(final String prefix) {
+		return lowerBound(prefix);
+	}
+
+	/**
+	 * Gets the index just past the last method whose name starts with the
+	 * prefix.
+	 */
+	int end(final String prefix) {
+		if (prefix.isEmpty()) return names.length;
+		return lowerBound(prefix + Character.MAX_VALUE);
+	}
+
+	// -- Helper methods --
+
+	/** Binary search for the first name not less than the given key. */
+	private int lowerBound(final String key) {
+		int lo = 0, hi = names.length;
+		while (lo < hi) {
+			final int mid = (lo + hi) >>> 1;
+			if (names[mid].compareTo(key) < 0) lo = mid + 1;
+			else hi = mid;
+		}
+		return lo;
+	}
+
+	private static String arguments(final Class<?>[] pTypes) {
+		if (pTypes.length == 0) return "<none>";
+		final StringBuilder sb = new StringBuilder();
+		for (final Class<?> pType : pTypes) {
+			if (sb.length() > 0) sb.append(", ");
+			sb.append(pType.getName());
+		}
+		return sb.toString();
+	}
+}
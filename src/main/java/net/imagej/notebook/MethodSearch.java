@@ -0,0 +1,190 @@
+/*-
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2017 - 2018 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.notebook;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Full-text index of methods across many classes, supporting ranked substring
+ * and fuzzy queries.
+ * <p>
+ * The index grows incrementally: classes are added one at a time via
+ * {@link #add(Class)}, and arbitrary named entries (e.g., ops) via
+ * {@link #add(String, String[], String[], String[])}. Queries see whatever has
+ * been indexed so far, so they never wait for indexing to finish.
+ * </p>
+ *
+ * @author Curtis Rueden
+ */
+class MethodSearch {
+
+	private final Set<Object> indexed = ConcurrentHashMap.newKeySet();
+	private final List<Source> sources = new CopyOnWriteArrayList<>();
+
+	/** Adds the public methods of the given class to the index. */
+	void add(final Class<?> type) {
+		if (!indexed.add(type)) return;
+		final MethodIndex index = MethodIndex.of(type);
+		final String[] owners = new String[index.size()];
+		Arrays.fill(owners, type.getName());
+		sources.add(new Source(owners, index.names, index.arguments,
+			index.returns));
+	}
+
+	/**
+	 * Adds a group of named entries to the index, unless a group with the same
+	 * key was already added.
+	 */
+	void add(final String key, final String[] owners, final String[] names,
+		final String[] arguments, final String[] returns)
+	{
+		if (!indexed.add(key)) return;
+		sources.add(new Source(owners, names, arguments, returns));
+	}
+
+	/**
+	 * Searches the index for methods matching the given query, ranked from best
+	 * to worst match.
+	 * <p>
+	 * Exact matches rank highest, then prefix matches, then substring matches,
+	 * then fuzzy matches (names containing all characters of the query in
+	 * order). Matching is case-insensitive.
+	 * </p>
+	 *
+	 * @param query The text to search for.
+	 * @param maxResults The maximum number of results to return.
+	 * @return a table of the best matching methods.
+	 */
+	NotebookTable search(final String query, final int maxResults) {
+		final String q = query.toLowerCase(Locale.ROOT);
+		final List<Match> matches = new ArrayList<>();
+		for (final Source source : sources) {
+			for (int i = 0; i < source.names.length; i++) {
+				final int score = score(q, source.lowerNames[i]);
+				if (score > 0) matches.add(new Match(source, i, score));
+			}
+		}
+		matches.sort((m1, m2) -> {
+			if (m1.score != m2.score) return m2.score - m1.score;
+			final int nameComp = m1.name().compareTo(m2.name());
+			if (nameComp != 0) return nameComp;
+			return m1.owner().compareTo(m2.owner());
+		});
+
+		final NotebookTable table = new NotebookTable();
+		final int count = Math.min(maxResults, matches.size());
+		table.ensureCapacity(count);
+		for (int m = 0; m < count; m++) {
+			final Match match = matches.get(m);
+			table.addRow(//
+				"class", match.owner(), //
+				"name", match.name(), //
+				"arguments", match.source.arguments[match.index], //
+				"returns", match.source.returns[match.index], //
+				"score", match.score //
+			);
+		}
+		return table;
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Scores how well the given name matches the query. Higher is better; zero
+	 * means no match.
+	 */
+	private static int score(final String query, final String name) {
+		if (query.isEmpty()) return 1;
+		if (name.equals(query)) return 4000;
+		if (name.startsWith(query)) return 3000 - Math.min(999, name.length());
+		final int index = name.indexOf(query);
+		if (index >= 0) return 2000 - Math.min(999, index);
+
+		// Fuzzy match: all query characters must appear in order. Consecutive
+		// runs of matching characters score higher than scattered ones.
+		int pos = 0, run = 0, bonus = 0;
+		for (int i = 0; i < query.length(); i++) {
+			final int found = name.indexOf(query.charAt(i), pos);
+			if (found < 0) return 0;
+			run = found == pos && i > 0 ? run + 1 : 0;
+			bonus += run;
+			pos = found + 1;
+		}
+		return Math.max(1, 1000 + 10 * bonus - (pos - query.length()));
+	}
+
+	// -- Helper classes --
+
+	private static class Source {
+
+		final String[] owners, names, lowerNames, arguments, returns;
+
+		Source(final String[] owners, final String[] names,
+			final String[] arguments, final String[] returns)
+		{
+			this.owners = owners;
+			this.names = names;
+			this.arguments = arguments;
+			this.returns = returns;
+			lowerNames = new String[names.length];
+			for (int i = 0; i < names.length; i++) {
+				lowerNames[i] = names[i].toLowerCase(Locale.ROOT);
+			}
+		}
+	}
+
+	private static class Match {
+
+		final Source source;
+		final int index;
+		final int score;
+
+		Match(final Source source, final int index, final int score) {
+			this.source = source;
+			this.index = index;
+			this.score = score;
+		}
+
+		String name() {
+			return source.names[index];
+		}
+
+		String owner() {
+			return source.owners[index];
+		}
+	}
+}
@@ -0,0 +1,246 @@
+/*-
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2017 - 2018 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.notebook;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lightweight registry of timings for the stages of the display pipeline:
+ * converter resolution, rendering, encoding and HTML assembly. Each
+ * {@link NotebookService} has its own registry; see
+ * {@link NotebookService#metrics()}.
+ * <p>
+ * Each stage records how often it ran, how long it took and how many bytes it
+ * produced. Latencies are kept in a fixed log-linear histogram (eight buckets
+ * per power of two, i.e. within about 10%), so recording is allocation-free
+ * and the percentiles are approximate.
+ * </p>
+ * <p>
+ * Recording is disabled by default. Stages deep inside the pipeline, which do
+ * not know which service they render for, record into the registry which is
+ * {@link #active()} on their thread; the service activates its registry while
+ * its notebook displayers render (see {@link #track(Callable)}).
+ * </p>
+ *
+ * @author Curtis Rueden
+ */
+public final class Metrics {
+
+	private static final int SUB_BUCKETS = 8;
+	private static final int BUCKETS = 64 * SUB_BUCKETS;
+
+	private static final ThreadLocal<Metrics> ACTIVE = new ThreadLocal<>();
+
+	private final Map<String, Stage> stages = new ConcurrentHashMap<>();
+
+	private volatile boolean enabled;
+
+	// -- Static methods --
+
+	/**
+	 * Gets the registry recording the work of the current thread, or null if
+	 * none is.
+	 */
+	public static Metrics active() {
+		return ACTIVE.get();
+	}
+
+	// -- Metrics methods --
+
+	/** Enables or disables recording. Recording is disabled by default. */
+	public void setEnabled(final boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	/** Gets whether recording is enabled. */
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	/** Discards everything recorded so far. */
+	public void reset() {
+		stages.clear();
+	}
+
+	/**
+	 * Performs the given work, with this registry {@link #active()} on the
+	 * current thread while recording is enabled.
+	 *
+	 * @return The result of the work.
+	 */
+	public <T> T track(final Callable<T> work) throws Exception {
+		if (!enabled) return work.call();
+		final Metrics previous = ACTIVE.get();
+		ACTIVE.set(this);
+		try {
+			return work.call();
+		}
+		finally {
+			if (previous == null) ACTIVE.remove();
+			else ACTIVE.set(previous);
+		}
+	}
+
+	/**
+	 * Records one run of the given stage.
+	 *
+	 * @param stage The name of the stage.
+	 * @param start The value of {@link System#nanoTime()} when the stage began.
+	 */
+	public void record(final String stage, final long start) {
+		record(stage, start, 0);
+	}
+
+	/**
+	 * Records one run of the given stage.
+	 *
+	 * @param stage The name of the stage.
+	 * @param start The value of {@link System#nanoTime()} when the stage began.
+	 * @param bytes The number of bytes the stage produced.
+	 */
+	public void record(final String stage, final long start, final long bytes) {
+		if (!enabled) return;
+		stage(stage).add(System.nanoTime() - start, bytes);
+	}
+
+	/**
+	 * Records one run of the given stage, which produced the given text.
+	 *
+	 * @param stage The name of the stage.
+	 * @param start The value of {@link System#nanoTime()} when the stage began.
+	 * @param output The text the stage produced, counted in UTF-8 bytes.
+	 */
+	public void record(final String stage, final long start,
+		final String output)
+	{
+		if (!enabled) return;
+		final long nanos = System.nanoTime() - start;
+		stage(stage).add(nanos, utf8Length(output));
+	}
+
+	/**
+	 * Summarizes the recorded stages as a table, with one row per stage: its
+	 * number of runs, the total, median (p50) and 99th percentile (p99) of its
+	 * latency in milliseconds, and the total bytes it produced.
+	 */
+	public NotebookTable table() {
+		final List<String> names = new ArrayList<>(stages.keySet());
+		Collections.sort(names);
+		final NotebookTable table = new NotebookTable();
+		for (final String name : names) {
+			final Stage stage = stages.get(name);
+			table.addRow("stage", name, //
+				"count", stage.count.sum(), //
+				"total ms", stage.nanos.sum() / 1e6, //
+				"p50 ms", stage.percentile(0.5) / 1e6, //
+				"p99 ms", stage.percentile(0.99) / 1e6, //
+				"bytes", stage.bytes.sum());
+		}
+		return table;
+	}
+
+	// -- Helper methods --
+
+	/** Counts the bytes of the UTF-8 encoding of the given string. */
+	static long utf8Length(final String s) {
+		long bytes = s.length();
+		for (int i = 0; i < s.length(); i++) {
+			final char c = s.charAt(i);
+			// NB: A surrogate pair is two chars, encoded as four bytes.
+			if (c >= 0x800) bytes += Character.isSurrogate(c) ? 1 : 2;
+			else if (c >= 0x80) bytes++;
+		}
+		return bytes;
+	}
+
+	/** Gets the given stage, creating it on first use. */
+	private Stage stage(final String name) {
+		// NB: Look up first; computeIfAbsent locks the bin even when present.
+		final Stage stage = stages.get(name);
+		return stage != null ? stage : stages.computeIfAbsent(name,
+			n -> new Stage());
+	}
+
+	/** Gets the histogram bucket of the given latency. */
+	private static int bucket(final long nanos) {
+		if (nanos < SUB_BUCKETS) return (int) Math.max(0, nanos);
+		final int octave = 63 - Long.numberOfLeadingZeros(nanos);
+		final int sub = (int) (nanos >>> octave - 3) & SUB_BUCKETS - 1;
+		return octave * SUB_BUCKETS + sub;
+	}
+
+	/** Gets the midpoint of the latencies in the given histogram bucket. */
+	private static double value(final int bucket) {
+		final int octave = bucket / SUB_BUCKETS;
+		if (octave < 3) return bucket;
+		final int sub = bucket % SUB_BUCKETS;
+		final double width = Math.pow(2, octave - 3);
+		return (SUB_BUCKETS + sub + 0.5) * width;
+	}
+
+	// -- Helper classes --
+
+	private static class Stage {
+
+		private final LongAdder count = new LongAdder();
+		private final LongAdder nanos = new LongAdder();
+		private final LongAdder bytes = new LongAdder();
+		private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+		private void add(final long elapsed, final long produced) {
+			count.increment();
+			nanos.add(elapsed);
+			bytes.add(produced);
+			histogram.incrementAndGet(bucket(elapsed));
+		}
+
+		private double percentile(final double p) {
+			long total = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				total += histogram.get(i);
+			}
+			final long rank = (long) Math.ceil(p * total);
+			long seen = 0;
+			for (int i = 0; i < BUCKETS; i++) {
+				seen += histogram.get(i);
+				if (seen >= rank && seen > 0) return value(i);
+			}
+			return 0;
+		}
+	}
+}
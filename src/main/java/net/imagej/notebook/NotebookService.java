@@ -30,15 +30,22 @@
 
 package net.imagej.notebook;
 
-import java.util.ArrayList;
+import java.awt.image.BufferedImage;
+import java.util.AbstractList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import net.imagej.Dataset;
 import net.imagej.ImageJService;
 import net.imagej.axis.Axes;
 import net.imagej.display.DatasetView;
 import net.imagej.display.DefaultDatasetView;
+import net.imagej.notebook.mime.ArrowObject;
+import net.imagej.notebook.mime.HTMLObject;
+import net.imagej.notebook.table.ArrayTables;
+import net.imagej.notebook.table.ArrowStream;
 import net.imglib2.RandomAccessibleInterval;
 import net.imglib2.converter.Converters;
 import net.imglib2.type.NativeType;
@@ -46,6 +53,7 @@ import net.imglib2.type.numeric.ARGBType;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.util.Util;
 
+import org.scijava.table.Table;
 import org.scijava.table.Tables;
 
 /**
@@ -99,6 +107,41 @@ public interface NotebookService extends ImageJService {
 	 */
 	Object display(Object source);
 
+	/**
+	 * Converts the given table to an Apache Arrow IPC stream, a compact binary
+	 * format which notebook frontends and other tools (e.g., {@code pyarrow})
+	 * can read without parsing HTML.
+	 *
+	 * @param table The table to convert: an {@link org.scijava.table.Table},
+	 *          {@link NotebookTable} or {@link ColumnarTable}.
+	 * @return the stream, or null if the object cannot be converted.
+	 * @see net.imagej.notebook.table.ArrowStream
+	 */
+	default ArrowObject arrow(final Object table) {
+		if (table instanceof Table) {
+			return () -> ArrowStream.of((Table<?, ?>) table).toBase64();
+		}
+		if (table instanceof ColumnarTable) {
+			return () -> ArrowStream.of((ColumnarTable) table).toBase64();
+		}
+		if (table instanceof NotebookTable) {
+			return () -> ArrowStream.of((NotebookTable) table).toBase64();
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the registry which reports where display time goes: for each stage
+	 * of the display pipeline (e.g., {@code mime.resolve}, {@code image.range},
+	 * {@code image.project}, {@code image.encode}, {@code image.html},
+	 * {@code table.html}), how often it ran, its total, median and 99th
+	 * percentile latency, and the bytes it produced. Recording is disabled
+	 * until {@link Metrics#setEnabled(boolean)} is called; the stages are then
+	 * recorded as objects are displayed in the notebook, and summarized by
+	 * {@link Metrics#table()}.
+	 */
+	Metrics metrics();
+
 	/**
 	 * Converts the given map data to a form renderable by scientific notebooks.
 	 * <p>
@@ -132,6 +175,68 @@ public interface NotebookService extends ImageJService {
 		return display(table);
 	}
 
+	/**
+	 * Converts the given array to a single-column table renderable by
+	 * scientific notebooks, without copying it. See
+	 * {@link ArrayTables#wrap(double[], String)}.
+	 *
+	 * @param data Array data to render.
+	 * @return an object that the notebook knows how to draw onscreen.
+	 */
+	default Object display(final double[] data) {
+		return display(ArrayTables.wrap(data, null));
+	}
+
+	/**
+	 * Converts the given array to a single-column table renderable by
+	 * scientific notebooks, without copying it. See
+	 * {@link ArrayTables#wrap(float[], String)}.
+	 *
+	 * @param data Array data to render.
+	 * @return an object that the notebook knows how to draw onscreen.
+	 */
+	default Object display(final float[] data) {
+		return display(ArrayTables.wrap(data, null));
+	}
+
+	/**
+	 * Converts the given array to a single-column table renderable by
+	 * scientific notebooks, without copying it. See
+	 * {@link ArrayTables#wrap(long[], String)}.
+	 *
+	 * @param data Array data to render.
+	 * @return an object that the notebook knows how to draw onscreen.
+	 */
+	default Object display(final long[] data) {
+		return display(ArrayTables.wrap(data, null));
+	}
+
+	/**
+	 * Converts the given array to a single-column table renderable by
+	 * scientific notebooks, without copying it. See
+	 * {@link ArrayTables#wrap(int[], String)}.
+	 *
+	 * @param data Array data to render.
+	 * @return an object that the notebook knows how to draw onscreen.
+	 */
+	default Object display(final int[] data) {
+		return display(ArrayTables.wrap(data, null));
+	}
+
+	/**
+	 * Converts the given 1D or 2D image to a table renderable by scientific
+	 * notebooks, reading its values on demand rather than copying them. See
+	 * {@link ArrayTables#wrap(RandomAccessibleInterval)}.
+	 *
+	 * @param source The image to render as a table.
+	 * @return an object that the notebook knows how to draw onscreen.
+	 */
+	default <T extends RealType<T>> Object displayTable(
+		final RandomAccessibleInterval<T> source)
+	{
+		return display(ArrayTables.wrap(source));
+	}
+
 	/**
 	 * Converts the given list data to a form renderable by scientific notebooks.
 	 * See {@link #display(List, String, List)} for details.
@@ -203,14 +308,39 @@ public interface NotebookService extends ImageJService {
 		}
 		else if (list.get(0) instanceof List) {
 			// List of elements; process recursively.
-			@SuppressWarnings("unchecked")
-			final List<List<?>> data = (List<List<?>>) list;
-			final List<Object> tables = new ArrayList<>(data.size());
-			for (final List<?> item : data) {
-				final Object renderedItem = display(item, colHeader, rowHeaders);
-				tables.add(renderedItem);
+			// NB: Elements are converted lazily, as the list is rendered, and
+			// nested lists of lists remain lists. This way, the rendering's limits
+			// on size and depth also bound the work done here. Each element is
+			// converted at most once, however often it is accessed.
+			class TableList extends AbstractList<Object> {
+
+				private final List<?> items;
+				private final Map<Integer, Object> converted =
+					new ConcurrentHashMap<>();
+
+				TableList(final List<?> items) {
+					this.items = items;
+				}
+
+				@Override
+				public Object get(final int index) {
+					final Object cached = converted.get(index);
+					if (cached != null) return cached;
+					return converted.computeIfAbsent(index, i -> {
+						final List<?> item = (List<?>) items.get(i);
+						if (!item.isEmpty() && item.get(0) instanceof List) {
+							return new TableList(item);
+						}
+						return display(item, colHeader, rowHeaders);
+					});
+				}
+
+				@Override
+				public int size() {
+					return items.size();
+				}
 			}
-			table = tables; // NB: List, not Table.
+			table = new TableList(list); // NB: List, not Table.
 		}
 		else if (list.get(0) instanceof Map) {
 			// Multi-column table.
@@ -318,6 +448,245 @@ public interface NotebookService extends ImageJService {
 		return Images.bufferedImage(source, xAxis, yAxis, cAxis, min, max, pos);
 	}
 
+	/**
+	 * Converts the first plane of the given image to a form renderable by
+	 * scientific notebooks, with sliders for adjusting its contrast in the
+	 * browser. See {@link #displayAdjustable(RandomAccessibleInterval, ValueScaling)}.
+	 *
+	 * @param source The image to render.
+	 * @return an object that the notebook knows how to draw onscreen.
+	 */
+	default <T extends RealType<T>> Object displayAdjustable(
+		final RandomAccessibleInterval<T> source)
+	{
+		return displayAdjustable(source, ValueScaling.AUTO);
+	}
+
+	/**
+	 * Converts the first plane of the given image to a form renderable by
+	 * scientific notebooks, with sliders for adjusting its contrast in the
+	 * browser.
+	 * <p>
+	 * The samples are sent to the notebook only once; dragging the sliders
+	 * redraws the image in the browser, with no round trips to the kernel.
+	 * </p>
+	 *
+	 * @param source The image to render.
+	 * @param scaling Value scaling strategy for the initial display range; see
+	 *          {@link ValueScaling}.
+	 * @return an object that the notebook knows how to draw onscreen.
+	 * @see Images#adjustableHTML
+	 */
+	default <T extends RealType<T>> Object displayAdjustable(
+		final RandomAccessibleInterval<T> source, final ValueScaling scaling)
+	{
+		final double[] range = Images.range(source, scaling);
+		return (HTMLObject) () -> Images.adjustableHTML(source, range[0],
+			range[1], null);
+	}
+
+	/**
+	 * Converts the given image stack to a form renderable by scientific
+	 * notebooks, with a slider for stepping through the planes along the given
+	 * axis.
+	 *
+	 * @param source The image stack to render.
+	 * @param axis The image dimension along which to step through the planes.
+	 * @return an object that the notebook knows how to draw onscreen.
+	 * @see #displayStack(RandomAccessibleInterval, int, int, int, int, double[],
+	 *      double[])
+	 */
+	default <T extends RealType<T>> Object displayStack(
+		final RandomAccessibleInterval<T> source, final int axis)
+	{
+		return displayStack(source, 0, 1, -1, axis, ValueScaling.AUTO);
+	}
+
+	/**
+	 * Converts the given image stack to a form renderable by scientific
+	 * notebooks, with a slider for stepping through the planes along the given
+	 * axis. The display range is computed once, across the entire stack.
+	 *
+	 * @param source The image stack to render.
+	 * @param xAxis The image dimension to use for the X axis.
+	 * @param yAxis The image dimension to use for the Y axis.
+	 * @param cAxis The image dimension to use for compositing multiple channels,
+	 *          or -1 for no compositing.
+	 * @param axis The image dimension along which to step through the planes.
+	 * @param scaling Value scaling strategy; see {@link ValueScaling}.
+	 * @return an object that the notebook knows how to draw onscreen.
+	 * @see #displayStack(RandomAccessibleInterval, int, int, int, int, double[],
+	 *      double[])
+	 */
+	default <T extends RealType<T>> Object displayStack(
+		final RandomAccessibleInterval<T> source, final int xAxis, final int yAxis,
+		final int cAxis, final int axis, final ValueScaling scaling)
+	{
+		final double[] range = Images.range(source, scaling);
+		final int channels = cAxis >= 0 ? (int) source.dimension(cAxis) : 1;
+		final double[] min = new double[channels];
+		final double[] max = new double[channels];
+		Arrays.fill(min, range[0]);
+		Arrays.fill(max, range[1]);
+		return displayStack(source, xAxis, yAxis, cAxis, axis, min, max);
+	}
+
+	/**
+	 * Converts the given image stack to a form renderable by scientific
+	 * notebooks, with a slider for stepping through the planes along the given
+	 * axis.
+	 * <p>
+	 * All planes are rendered in parallel with the same contrast settings, then
+	 * packed into a single sprite sheet, so that the whole stack is encoded only
+	 * once rather than once per plane.
+	 * </p>
+	 *
+	 * @param source The image stack to render.
+	 * @param xAxis The image dimension to use for the X axis.
+	 * @param yAxis The image dimension to use for the Y axis.
+	 * @param cAxis The image dimension to use for compositing multiple channels,
+	 *          or -1 for no compositing.
+	 * @param axis The image dimension along which to step through the planes.
+	 * @param min The minimum value per channel allowed on the display.
+	 * @param max The maximum value per channel allowed on the display.
+	 * @return an object that the notebook knows how to draw onscreen.
+	 */
+	default <T extends RealType<T>> Object displayStack(
+		final RandomAccessibleInterval<T> source, final int xAxis, final int yAxis,
+		final int cAxis, final int axis, final double[] min, final double[] max)
+	{
+		final BufferedImage sheet = Images.spriteSheet(source, xAxis, yAxis,
+			cAxis, axis, min, max, execution());
+		final int planeWidth = xAxis >= 0 ? (int) source.dimension(xAxis) : 1;
+		final int planeHeight = yAxis >= 0 ? (int) source.dimension(yAxis) : 1;
+		final long planeCount = source.dimension(axis);
+		final HTMLObject html = () -> Images.stackHTML(sheet, planeWidth,
+			planeHeight, planeCount, null);
+		return html;
+	}
+
+	/**
+	 * Limits the cost of displaying objects in the notebook.
+	 * <p>
+	 * Objects are rendered on a background thread, except for small images,
+	 * which are rendered directly. When a rendering takes longer than the
+	 * timeout, or its UTF-8 encoding is larger than the given number of bytes, a
+	 * short placeholder with the object's type and dimensions is shown instead.
+	 * By default, renderings time out after 10 seconds, and outputs are limited
+	 * to 32 MB.
+	 * </p>
+	 *
+	 * @param timeout The maximum milliseconds to wait for a rendering, or 0 to
+	 *          render synchronously without a time limit.
+	 * @param maxBytes The maximum size of a rendering in bytes, as UTF-8, or 0
+	 *          for no limit.
+	 * @param async Whether a rendering which times out replaces its placeholder
+	 *          once it finishes, when the notebook supports updating outputs in
+	 *          place (e.g., BeakerX). Otherwise, it is cancelled.
+	 */
+	void setRenderLimits(long timeout, long maxBytes, boolean async);
+
+	/**
+	 * Gets the settings which bound the output of the converters used to
+	 * display objects, such as the number of list elements shown. Changes to
+	 * the settings apply to subsequent displays.
+	 */
+	DisplaySettings displaySettings();
+
+	/**
+	 * Sets the backend on which the module's parallel work runs: sprite sheet
+	 * rendering, method search indexing, background rendering of displays and
+	 * live display updates. By default, and again once the service is disposed,
+	 * this is the JVM's common {@link java.util.concurrent.ForkJoinPool}.
+	 * <p>
+	 * The service closes the backend in use when it is disposed. A backend
+	 * replaced before then is not closed; it remains the caller's to close.
+	 * </p>
+	 * <p>
+	 * For example, to share ImageJ's threads, but use at most two of them for
+	 * any single display:
+	 * </p>
+	 *
+	 * <pre>
+	 * ns.setExecution(Execution.threadService(threadService).withParallelism(2));
+	 * </pre>
+	 *
+	 * @param execution The backend to use.
+	 * @see Execution
+	 */
+	void setExecution(Execution execution);
+
+	/** Gets the backend on which the module's parallel work runs. */
+	Execution execution();
+
+	/**
+	 * Displays the given image in a form which can be updated in place.
+	 * See {@link #displayLive(RandomAccessibleInterval, int, int, int, double[], double[], long...)}
+	 * for details.
+	 *
+	 * @param source The image to render.
+	 * @param min The minimum value allowed on the display.
+	 * @param max The maximum value allowed on the display.
+	 * @return a handle for refreshing the display.
+	 */
+	default <T extends RealType<T>> LiveDisplay<T> displayLive(
+		final RandomAccessibleInterval<T> source, final double min,
+		final double max)
+	{
+		final int cAxis = Images.channelAxis(source);
+		final int channels = cAxis >= 0 ? (int) source.dimension(cAxis) : 1;
+		final double[] minArray = new double[channels];
+		final double[] maxArray = new double[channels];
+		Arrays.fill(minArray, min);
+		Arrays.fill(maxArray, max);
+		return displayLive(source, 0, 1, cAxis, minArray, maxArray);
+	}
+
+	/**
+	 * Displays the given image in a form which can be updated in place, e.g. to
+	 * monitor the progress of a long-running operation which modifies it.
+	 * <p>
+	 * Call {@link LiveDisplay#refresh()} or
+	 * {@link LiveDisplay#refresh(net.imglib2.Interval)} on the returned handle
+	 * after the image changes. When the notebook supports updating an existing
+	 * output (e.g., BeakerX), the image is shown right away and its changed
+	 * tiles are updated in place; otherwise, displaying the handle shows its
+	 * latest state.
+	 * </p>
+	 *
+	 * @param source The image to render.
+	 * @param xAxis The image dimension to use for the X axis.
+	 * @param yAxis The image dimension to use for the Y axis.
+	 * @param cAxis The image dimension to use for compositing multiple channels,
+	 *          or -1 for no compositing.
+	 * @param min The minimum value per channel allowed on the display.
+	 * @param max The maximum value per channel allowed on the display.
+	 * @param pos Dimensional position of the image. Passing null or the empty
+	 *          array will display the default (typically the first) position.
+	 * @return a handle for refreshing the display.
+	 */
+	default <T extends RealType<T>> LiveDisplay<T> displayLive(
+		final RandomAccessibleInterval<T> source, final int xAxis,
+		final int yAxis, final int cAxis, final double[] min, final double[] max,
+		final long... pos)
+	{
+		final int w = xAxis >= 0 ? (int) source.dimension(xAxis) : 1;
+		final int h = yAxis >= 0 ? (int) source.dimension(yAxis) : 1;
+		final int size = LiveDisplay.TILE_SIZE;
+		LiveDisplay.TileSink sink;
+		try {
+			sink = BeakerX.tileWidgets((w + size - 1) / size, (h + size - 1) / size);
+		}
+		catch (final NoClassDefFoundError exc) {
+			// NB: BeakerX is not available; updates cannot be pushed.
+			sink = null;
+		}
+		final LiveDisplay<T> live = new LiveDisplay<>(source, xAxis, yAxis, cAxis,
+			min, max, sink, pos);
+		live.setExecution(execution());
+		return live;
+	}
+
 	/**
 	 * Organizes the given list of images into an N-dimensional mosaic.
 	 * <p>
@@ -401,9 +770,49 @@ public interface NotebookService extends ImageJService {
 	 */
 	NotebookTable methods(Class<?> type, String prefix);
 	
+	/**
+	 * Searches the methods of all services and ops in the context, plus any
+	 * classes previously passed to {@link #methods(Class, String)}. See
+	 * {@link #search(String, int)} for details.
+	 *
+	 * @param query The text to search for.
+	 * @return a table of the best matching methods.
+	 */
+	default NotebookTable search(final String query) {
+		return search(query, 50);
+	}
+
+	/**
+	 * Searches the methods of all services and ops in the context, plus any
+	 * classes previously passed to {@link #methods(Class, String)}.
+	 * <p>
+	 * Matching is case-insensitive, and results are ranked: exact name matches
+	 * first, then prefix matches, then substring matches, then fuzzy matches
+	 * (names containing the characters of the query in order).
+	 * </p>
+	 * <p>
+	 * The search index is built in the background, starting with the first
+	 * search, which also creates the {@code OpService} if needed. Until it
+	 * completes, searches return matches among the methods indexed so far.
+	 * </p>
+	 *
+	 * @param query The text to search for.
+	 * @param maxResults The maximum number of results to return.
+	 * @return a table of the best matching methods.
+	 */
+	NotebookTable search(String query, int maxResults);
+
 	/**
 	 * Conveniently wraps a {@link RandomAccessibleInterval} into a
 	 * {@link DefaultDatasetView}.
+	 * <p>
+	 * This stays the heavy path on purpose: the result is a full ImageJ view,
+	 * backed by a new {@link Dataset}, which callers may pass on to ImageJ or
+	 * adjust and {@link DatasetView#rebuild() rebuild}. Its first use also
+	 * creates the {@code DatasetService} and {@code ImageDisplayService}. To
+	 * only render the image, use {@link #imageView(RandomAccessibleInterval)}
+	 * instead.
+	 * </p>
 	 * 
 	 * @param source - the input data
 	 * @return a DefaultDatasetView containing the data
@@ -434,6 +843,7 @@ public interface NotebookService extends ImageJService {
 	 * @param min - the minimum for the channel ranges
 	 * @param max - the maximum for the channel ranges
 	 * @return a DefaultDatasetView containing the data
+	 * @see #imageView(RandomAccessibleInterval, double, double)
 	 */
 	default DatasetView view(final RandomAccessibleInterval<?> source,
 		final double min, final double max)
@@ -453,6 +863,7 @@ public interface NotebookService extends ImageJService {
 	 * @param min - the minimum for the channel ranges
 	 * @param max - the maximum for the channel ranges
 	 * @return a DefaultDatasetView containing the data
+	 * @see #imageView(RandomAccessibleInterval, double[], double[])
 	 */
 	default DatasetView view(final RandomAccessibleInterval<?> source,
 		final double[] min, final double[] max)
@@ -472,6 +883,74 @@ public interface NotebookService extends ImageJService {
 		return output;
 	}
 
+	/**
+	 * Wraps a {@link RandomAccessibleInterval} into a lightweight
+	 * {@link ImageView}. Unlike {@link #view(RandomAccessibleInterval)}, no
+	 * {@link Dataset} or display is created, making this much cheaper for
+	 * one-off rendering.
+	 *
+	 * @param source - the input data
+	 * @return an ImageView of the data
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	default ImageView<?> imageView(final RandomAccessibleInterval<?> source) {
+		final Object element = Util.getTypeFromInterval(source);
+		if (element instanceof ARGBType) {
+			// NB: argbChannels appends the channel dimension.
+			return new ImageView<>(Converters.argbChannels(
+				(RandomAccessibleInterval<ARGBType>) source, 1, 2, 3), 0, 1, source
+					.numDimensions());
+		}
+		else if (element instanceof RealType) {
+			return new ImageView((RandomAccessibleInterval<RealType>) source);
+		}
+		else {
+			throw new IllegalArgumentException("Unsupported image type: " + element
+				.getClass().getName());
+		}
+	}
+
+	/**
+	 * Wraps a {@link RandomAccessibleInterval} into a lightweight
+	 * {@link ImageView} and presets the channel ranges to the given minimum and
+	 * maximum values.
+	 *
+	 * @param source - the input data
+	 * @param min - the minimum for the channel ranges
+	 * @param max - the maximum for the channel ranges
+	 * @return an ImageView of the data
+	 */
+	default ImageView<?> imageView(final RandomAccessibleInterval<?> source,
+		final double min, final double max)
+	{
+		final ImageView<?> output = imageView(source);
+		output.setChannelRanges(min, max);
+		return output;
+	}
+
+	/**
+	 * Wraps a {@link RandomAccessibleInterval} into a lightweight
+	 * {@link ImageView} and presets the channel ranges to the given minimum and
+	 * maximum arrays.
+	 *
+	 * @param source - the input data
+	 * @param min - the minimum for each channel range
+	 * @param max - the maximum for each channel range
+	 * @return an ImageView of the data
+	 */
+	default ImageView<?> imageView(final RandomAccessibleInterval<?> source,
+		final double[] min, final double[] max)
+	{
+		final ImageView<?> output = imageView(source);
+		if (min.length < output.getChannelCount() || max.length < output
+			.getChannelCount()) throw new IllegalArgumentException(
+				"Channel maximum and minimum arrays do not match channel count!");
+		for (int c = 0; c < output.getChannelCount(); c++) {
+			output.setChannelRange(c, min[c], max[c]);
+		}
+		return output;
+	}
+
 	/**
 	 * Conveniently wraps a {@link RandomAccessibleInterval} of {@link RealType}
 	 * into a {@link DefaultDatasetView} and presets the channel ranges to the
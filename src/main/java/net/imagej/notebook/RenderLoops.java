@@ -0,0 +1,219 @@
+/*-
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2017 - 2018 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.notebook;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import net.imglib2.Cursor;
+import net.imglib2.display.ColorTable;
+import net.imglib2.histogram.Binning;
+import net.imglib2.type.numeric.RealType;
+
+/**
+ * The per-pixel loops of {@link Renderer}, specialized per pixel type.
+ * <p>
+ * A loop shared by every pixel type calls {@link Cursor#next()} and
+ * {@link RealType#getRealDouble()} from a single call site. Once a session has
+ * rendered, say, {@code UnsignedByteType}, {@code FloatType} and
+ * {@code UnsignedShortType} images, that call site is megamorphic and every
+ * later render runs much slower. So, like ImgLib2's {@code ClassCopyProvider},
+ * this class loads a separate copy of the loop class for each combination of
+ * cursor and pixel type. Each copy is compiled on its own by the JIT, with
+ * monomorphic call sites.
+ * </p>
+ *
+ * @author Curtis Rueden
+ */
+final class RenderLoops {
+
+	/**
+	 * The loops, by cursor class and then pixel type. Neither class is held
+	 * strongly from here, so both can still be unloaded.
+	 */
+	private static final ClassValue<Map<Class<?>, Loop>> LOOPS =
+		new ClassValue<Map<Class<?>, Loop>>()
+		{
+
+			@Override
+			protected Map<Class<?>, Loop> computeValue(final Class<?> cursorClass) {
+				return Collections.synchronizedMap(new WeakHashMap<>());
+			}
+		};
+
+	private static final Loop SHARED = new Impl();
+
+	private static volatile boolean specialized = true;
+
+	private RenderLoops() {
+		// Prevent instantiation of utility class.
+	}
+
+	/**
+	 * Enables or disables the specialized loops. When disabled, every type
+	 * shares one loop; this is only useful for comparison (e.g., in benchmarks).
+	 */
+	static void setSpecialized(final boolean specialized) {
+		RenderLoops.specialized = specialized;
+	}
+
+	/**
+	 * Gets the loop specialized for the given cursor and pixel type.
+	 *
+	 * @param cursor The cursor which the loop will iterate.
+	 * @param type A sample of the cursor's pixel type.
+	 */
+	static Loop get(final Cursor<?> cursor, final RealType<?> type) {
+		if (!specialized) return SHARED;
+		return LOOPS.get(cursor.getClass()).computeIfAbsent(type.getClass(),
+			key -> copy());
+	}
+
+	// -- Helper methods --
+
+	/** Loads a new copy of {@link Impl}, or shares the original if unable. */
+	private static Loop copy() {
+		final String name = Impl.class.getName();
+		final String resource = name.substring(name.lastIndexOf('.') + 1) +
+			".class";
+		try (final InputStream in = Impl.class.getResourceAsStream(resource)) {
+			if (in == null) return SHARED;
+			final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			final byte[] buf = new byte[8192];
+			int r;
+			while ((r = in.read(buf)) > 0)
+				bytes.write(buf, 0, r);
+			final Class<?> copy = new CopyLoader(Impl.class.getClassLoader(), name,
+				bytes.toByteArray()).loadClass(name);
+			return (Loop) copy.getConstructor().newInstance();
+		}
+		catch (final IOException | ReflectiveOperationException
+				| LinkageError | SecurityException exc)
+		{
+			return SHARED;
+		}
+	}
+
+	// -- Helper classes --
+
+	/**
+	 * A per-pixel rendering loop. It is public, as is {@link Impl}, so that
+	 * copies of {@link Impl} in other class loaders can access it.
+	 */
+	public interface Loop {
+
+		/**
+		 * Writes the color table index of each sample, as
+		 * {@link Binning#valueToBin} computes it.
+		 */
+		void index(Cursor<? extends RealType<?>> cursor, byte[] out, int bins,
+			double min, double max);
+
+		/**
+		 * Writes the ARGB color of each sample, as
+		 * {@link net.imglib2.converter.RealLUTConverter} computes it; or, if
+		 * {@code add} is set, adds it to the existing color, saturating each
+		 * component at 255.
+		 */
+		void argb(Cursor<? extends RealType<?>> cursor, int[] out,
+			ColorTable lut, double min, double max, boolean add);
+	}
+
+	/**
+	 * The loops to be copied. This class must only use public API, since its
+	 * copies live in a different runtime package than the rest of this one.
+	 */
+	public static final class Impl implements Loop {
+
+		@Override
+		public void index(final Cursor<? extends RealType<?>> cursor,
+			final byte[] out, final int bins, final double min, final double max)
+		{
+			for (int j = 0; j < out.length; j++) {
+				final double value = cursor.next().getRealDouble();
+				out[j] = (byte) Binning.valueToBin(bins, min, max, value);
+			}
+		}
+
+		@Override
+		public void argb(final Cursor<? extends RealType<?>> cursor,
+			final int[] out, final ColorTable lut, final double min,
+			final double max, final boolean add)
+		{
+			for (int j = 0; j < out.length; j++) {
+				final double value = cursor.next().getRealDouble();
+				final int argb = lut.lookupARGB(min, max, value);
+				if (!add) {
+					out[j] = argb;
+					continue;
+				}
+				final int old = out[j];
+				final int a = Math.min(255, (old >>> 24) + (argb >>> 24));
+				final int r = Math.min(255, (old >> 16 & 0xff) + (argb >> 16 & 0xff));
+				final int g = Math.min(255, (old >> 8 & 0xff) + (argb >> 8 & 0xff));
+				final int b = Math.min(255, (old & 0xff) + (argb & 0xff));
+				out[j] = a << 24 | r << 16 | g << 8 | b;
+			}
+		}
+	}
+
+	/** Class loader which defines its own copy of one class. */
+	private static final class CopyLoader extends ClassLoader {
+
+		private final String name;
+		private final byte[] bytes;
+
+		private CopyLoader(final ClassLoader parent, final String name,
+			final byte[] bytes)
+		{
+			super(parent);
+			this.name = name;
+			this.bytes = bytes;
+		}
+
+		@Override
+		protected Class<?> loadClass(final String className,
+			final boolean resolve) throws ClassNotFoundException
+		{
+			if (!className.equals(name)) return super.loadClass(className, resolve);
+			synchronized (getClassLoadingLock(className)) {
+				Class<?> c = findLoadedClass(className);
+				if (c == null) c = defineClass(className, bytes, 0, bytes.length);
+				if (resolve) resolveClass(c);
+				return c;
+			}
+		}
+	}
+}
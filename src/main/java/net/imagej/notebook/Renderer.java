@@ -0,0 +1,481 @@
+/*-
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2017 - 2018 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.notebook;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.awt.image.IndexColorModel;
+import java.awt.image.WritableRaster;
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.converter.Converter;
+import net.imglib2.converter.RealLUTConverter;
+import net.imglib2.display.ColorTable8;
+import net.imglib2.display.projector.composite.CompositeXYProjector;
+import net.imglib2.display.screenimage.awt.ARGBScreenImage;
+import net.imglib2.histogram.Binning;
+import net.imglib2.img.array.ArrayImg;
+import net.imglib2.img.basictypeaccess.array.ByteArray;
+import net.imglib2.img.basictypeaccess.array.ShortArray;
+import net.imglib2.img.planar.PlanarImg;
+import net.imglib2.type.numeric.ARGBType;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.util.Util;
+import net.imglib2.view.Views;
+
+/**
+ * Renders images to {@link BufferedImage}s, retaining its target buffer,
+ * converters and projector between calls.
+ * <p>
+ * Repeatedly rendering the same image (e.g., to monitor the progress of an
+ * iterative algorithm) re-maps the pixels in place; the target buffer is only
+ * reallocated when the rendered dimensions or number of channels change. As a
+ * consequence, the {@link BufferedImage} returned by
+ * {@link #render(RandomAccessibleInterval, int, int, int, double[], double[], ColorTable8[], long...)}
+ * is overwritten by subsequent calls.
+ * </p>
+ * <p>
+ * Single-channel images are rendered into an 8-bit
+ * {@link BufferedImage#TYPE_BYTE_INDEXED indexed} image, with the channel's
+ * color table as palette, so that they encode as compact 8-bit PNGs. Images
+ * with multiple channels are composited into an ARGB image.
+ * </p>
+ * <p>
+ * Unsigned 8- and 16-bit images backed by an {@link ArrayImg} or
+ * {@link PlanarImg} are rendered directly from their backing arrays via
+ * precomputed lookup tables. Other images with both an X and a Y axis are
+ * rendered by loops specialized per cursor and pixel type (see
+ * {@link RenderLoops}), so that rendering images of many types in one session
+ * stays fast. The rest are rendered via a {@link CompositeXYProjector}.
+ * </p>
+ * <p>
+ * Instances of this class are not thread-safe.
+ * </p>
+ *
+ * @author Curtis Rueden
+ */
+public class Renderer<T extends RealType<T>> {
+
+	private ARGBScreenImage target;
+	private final ArrayList<Converter<T, ARGBType>> converters =
+		new ArrayList<>();
+
+	private int[][] rawLUTs;
+	private Object[][] rawSettings;
+
+	private BufferedImage indexed;
+	private ColorTable8 indexedLUT;
+	private byte[] rawIndices;
+	private Object[] rawIndexSettings;
+
+	private CompositeXYProjector<T> projector;
+	private RandomAccessibleInterval<T> projectorSource;
+	private int projectorCAxis;
+
+	/**
+	 * Renders the given {@link RandomAccessibleInterval}.
+	 *
+	 * @param source The image to render.
+	 * @param xAxis The image dimension to use for the X axis.
+	 * @param yAxis The image dimension to use for the Y axis.
+	 * @param cAxis The image dimension to use for compositing multiple channels,
+	 *          or -1 for no compositing.
+	 * @param min The minimum value per channel allowed on the display
+	 * @param max The maximum value per channel allowed on the display
+	 * @param luts The color table per channel, or null to use the default color
+	 *          tables.
+	 * @param pos Dimensional position of the image. Passing null or the empty
+	 *          array will display the default (typically the first) position.
+	 * @return {@link BufferedImage} representation, backed by this renderer's
+	 *         target buffer.
+	 */
+	public BufferedImage render(final RandomAccessibleInterval<T> source,
+		final int xAxis, final int yAxis, final int cAxis, final double[] min,
+		final double[] max, final ColorTable8[] luts, final long... pos)
+	{
+		final int c = cAxis >= 0 ? (int) source.dimension(cAxis) : 1;
+		if (c == 1 && xAxis >= 0 && yAxis >= 0) {
+			checkSettings(c, min, max, luts);
+			return renderIndexed(source, xAxis, yAxis, cAxis, min[0], max[0],
+				luts == null ? Images.defaultColorTable(0, 1) : luts[0], pos);
+		}
+		return map(source, xAxis, yAxis, cAxis, min, max, luts, pos).image();
+	}
+
+	/**
+	 * Lets go of the output and source of the last render, while keeping the
+	 * converters and lookup tables. The next render then allocates new output,
+	 * leaving the images returned so far untouched.
+	 */
+	public void detach() {
+		target = null;
+		indexed = null;
+		indexedLUT = null;
+		projector = null;
+		projectorSource = null;
+	}
+
+	// -- Helper methods --
+
+	ARGBScreenImage map(final RandomAccessibleInterval<T> source,
+		final int xAxis, final int yAxis, final int cAxis, final double[] min,
+		final double[] max, final ColorTable8[] luts, final long... pos)
+	{
+		final int w = xAxis >= 0 ? (int) source.dimension(xAxis) : 1;
+		final int h = yAxis >= 0 ? (int) source.dimension(yAxis) : 1;
+		final int c = cAxis >= 0 ? (int) source.dimension(cAxis) : 1;
+
+		checkSettings(c, min, max, luts);
+
+		boolean stale = false;
+		if (target == null || target.dimension(0) != w || target.dimension(1) != h)
+		{
+			target = new ARGBScreenImage(w, h);
+			stale = true;
+		}
+		if (converters.size() != c) {
+			converters.clear();
+			for (int i = 0; i < c; i++) {
+				converters.add(new RealLUTConverter<T>(0, 1, //
+					Images.defaultColorTable(i, c)));
+			}
+			stale = true;
+		}
+		for (int i = 0; i < c; i++) {
+			final RealLUTConverter<T> converter = //
+				(RealLUTConverter<T>) converters.get(i);
+			converter.setMin(min[i]);
+			converter.setMax(max[i]);
+			converter.setLUT(luts == null ? Images.defaultColorTable(i, c) : luts[i]);
+		}
+
+		if (mapRaw(source, xAxis, yAxis, cAxis, c, pos)) return target;
+
+		if (xAxis >= 0 && yAxis >= 0) {
+			final int[] out = target.getData();
+			final T type = Util.getTypeFromInterval(source);
+			for (int i = 0; i < c; i++) {
+				final RealLUTConverter<T> converter = //
+					(RealLUTConverter<T>) converters.get(i);
+				final Cursor<T> cursor = planeCursor(source, xAxis, yAxis, cAxis, i,
+					pos);
+				RenderLoops.get(cursor, type).argb(cursor, out, converter.getLUT(),
+					converter.getMin(), converter.getMax(), i > 0);
+			}
+			return target;
+		}
+
+		if (stale || source != projectorSource || cAxis != projectorCAxis) {
+			projector = new CompositeXYProjector<>(Views.zeroMin(source), target,
+				converters, cAxis);
+			projector.setComposite(true);
+			projectorSource = source;
+			projectorCAxis = cAxis;
+		}
+
+		// NB: Reset the position, in case a previous render moved it.
+		if (pos != null && pos.length > 0) projector.setPosition(pos);
+		else for (int d = 0; d < projector.numDimensions(); d++) {
+			projector.setPosition(0, d);
+		}
+		projector.map();
+
+		return target;
+	}
+
+	/**
+	 * Renders unsigned 8- and 16-bit {@link ArrayImg}s and {@link PlanarImg}s
+	 * directly from their backing arrays, using precomputed ARGB lookup tables
+	 * indexed by raw sample value. This is equivalent to, but much faster than,
+	 * converting every sample through its {@link RealLUTConverter}.
+	 *
+	 * @return true iff the image was rendered; false if the fast path does not
+	 *         apply to it.
+	 */
+	private boolean mapRaw(final RandomAccessibleInterval<T> source,
+		final int xAxis, final int yAxis, final int cAxis, final int c,
+		final long[] pos)
+	{
+		final int lutSize = rawLUTSize(source, xAxis, yAxis, cAxis);
+		if (lutSize == 0) return false;
+		final T type = Util.getTypeFromInterval(source);
+		final int planeSize = (int) (source.dimension(0) * source.dimension(1));
+		final Object[] planes = new Object[c];
+		final int[] offsets = new int[c];
+		if (!locatePlanes(source, cAxis, pos, planes, offsets)) return false;
+
+		final int[] out = target.getData();
+		for (int i = 0; i < c; i++) {
+			final int[] lut = rawLUT(i, type, lutSize);
+			final int offset = offsets[i];
+			if (planes[i] instanceof byte[]) {
+				final byte[] data = (byte[]) planes[i];
+				if (i == 0) {
+					for (int j = 0; j < planeSize; j++) {
+						out[j] = lut[data[offset + j] & 0xff];
+					}
+				}
+				else {
+					for (int j = 0; j < planeSize; j++) {
+						out[j] = add(out[j], lut[data[offset + j] & 0xff]);
+					}
+				}
+			}
+			else {
+				final short[] data = (short[]) planes[i];
+				if (i == 0) {
+					for (int j = 0; j < planeSize; j++) {
+						out[j] = lut[data[offset + j] & 0xffff];
+					}
+				}
+				else {
+					for (int j = 0; j < planeSize; j++) {
+						out[j] = add(out[j], lut[data[offset + j] & 0xffff]);
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Renders a single channel into the indexed target image, as the indices of
+	 * the color table entries which {@link RealLUTConverter} would choose.
+	 */
+	private BufferedImage renderIndexed(final RandomAccessibleInterval<T> source,
+		final int xAxis, final int yAxis, final int cAxis, final double min,
+		final double max, final ColorTable8 lut, final long[] pos)
+	{
+		final int w = (int) source.dimension(xAxis);
+		final int h = (int) source.dimension(yAxis);
+		final boolean resized = indexed == null || indexed.getWidth() != w ||
+			indexed.getHeight() != h;
+		if (resized || lut != indexedLUT) {
+			final IndexColorModel palette = palette(lut);
+			final WritableRaster raster = resized ? //
+				palette.createCompatibleWritableRaster(w, h) : indexed.getRaster();
+			indexed = new BufferedImage(palette, raster, false, null);
+			indexedLUT = lut;
+		}
+		final byte[] out = //
+			((DataBufferByte) indexed.getRaster().getDataBuffer()).getData();
+		final int bins = lut.getLength();
+
+		// Fast path: look up the index of each raw sample value.
+		final int lutSize = rawLUTSize(source, xAxis, yAxis, cAxis);
+		final Object[] planes = new Object[1];
+		final int[] offsets = new int[1];
+		if (lutSize > 0 && locatePlanes(source, cAxis, pos, planes, offsets)) {
+			final byte[] indices = rawIndices(min, max, bins, lutSize);
+			final int offset = offsets[0];
+			if (planes[0] instanceof byte[]) {
+				final byte[] data = (byte[]) planes[0];
+				for (int j = 0; j < out.length; j++) {
+					out[j] = indices[data[offset + j] & 0xff];
+				}
+			}
+			else {
+				final short[] data = (short[]) planes[0];
+				for (int j = 0; j < out.length; j++) {
+					out[j] = indices[data[offset + j] & 0xffff];
+				}
+			}
+			return indexed;
+		}
+
+		// General path: iterate over the plane in flat order.
+		final Cursor<T> cursor = planeCursor(source, xAxis, yAxis, cAxis, 0, pos);
+		RenderLoops.get(cursor, Util.getTypeFromInterval(source)).index(cursor,
+			out, bins, min, max);
+		return indexed;
+	}
+
+	/**
+	 * Gets a cursor over the XY plane of the given channel at the given
+	 * position, iterating in flat order with X varying fastest.
+	 */
+	private Cursor<T> planeCursor(final RandomAccessibleInterval<T> source,
+		final int xAxis, final int yAxis, final int cAxis, final int channel,
+		final long[] pos)
+	{
+		RandomAccessibleInterval<T> plane = Views.zeroMin(source);
+		for (int d = plane.numDimensions() - 1; d >= 0; d--) {
+			if (d == xAxis || d == yAxis) continue;
+			final long p = d == cAxis ? channel : //
+				pos != null && pos.length > d ? pos[d] : 0;
+			plane = Views.hyperSlice(plane, d, p);
+		}
+		if (xAxis > yAxis) plane = Views.permute(plane, 0, 1);
+		return Views.flatIterable(plane).cursor();
+	}
+
+	/**
+	 * Gets the number of possible raw sample values of the given image, if it
+	 * is eligible for rendering directly from its backing arrays; or 0 if not.
+	 */
+	private int rawLUTSize(final RandomAccessibleInterval<T> source,
+		final int xAxis, final int yAxis, final int cAxis)
+	{
+		if (xAxis != 0 || yAxis != 1 || cAxis == 0 || cAxis == 1) return 0;
+		if (!(source instanceof ArrayImg || source instanceof PlanarImg)) {
+			return 0;
+		}
+		final Class<?> typeClass = Util.getTypeFromInterval(source).getClass();
+		if (typeClass == UnsignedByteType.class) return 0x100;
+		if (typeClass == UnsignedShortType.class) return 0x10000;
+		return 0;
+	}
+
+	/**
+	 * Locates the backing array, and the offset within it, of each channel's
+	 * XY plane at the given position.
+	 *
+	 * @return true iff all planes were located.
+	 */
+	private boolean locatePlanes(final RandomAccessibleInterval<T> source,
+		final int cAxis, final long[] pos, final Object[] planes,
+		final int[] offsets)
+	{
+		final int planeSize = (int) (source.dimension(0) * source.dimension(1));
+		for (int i = 0; i < planes.length; i++) {
+			long planeIndex = 0, stride = 1;
+			for (int d = 2; d < source.numDimensions(); d++) {
+				final long p = d == cAxis ? i : //
+					pos != null && pos.length > d ? pos[d] : 0;
+				if (p < 0 || p >= source.dimension(d)) return false;
+				planeIndex += p * stride;
+				stride *= source.dimension(d);
+			}
+			final Object access;
+			if (source instanceof ArrayImg) {
+				access = ((ArrayImg<?, ?>) source).update(null);
+				offsets[i] = (int) planeIndex * planeSize;
+			}
+			else access = ((PlanarImg<?, ?>) source).getPlane((int) planeIndex);
+			if (access instanceof ByteArray) {
+				planes[i] = ((ByteArray) access).getCurrentStorageArray();
+			}
+			else if (access instanceof ShortArray) {
+				planes[i] = ((ShortArray) access).getCurrentStorageArray();
+			}
+			else return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Gets the color table index of each raw sample value, recomputing them if
+	 * the settings changed since the last render.
+	 */
+	private byte[] rawIndices(final double min, final double max,
+		final int bins, final int size)
+	{
+		final Object[] settings = { min, max, bins, size };
+		if (!Arrays.equals(settings, rawIndexSettings)) {
+			rawIndices = new byte[size];
+			for (int v = 0; v < size; v++) {
+				rawIndices[v] = (byte) Binning.valueToBin(bins, min, max, v);
+			}
+			rawIndexSettings = settings;
+		}
+		return rawIndices;
+	}
+
+	/**
+	 * Gets the ARGB lookup table of the given channel, recomputing it from the
+	 * channel's converter if its settings changed since the last render.
+	 */
+	private int[] rawLUT(final int i, final T type, final int size) {
+		if (rawLUTs == null || rawLUTs.length != converters.size()) {
+			rawLUTs = new int[converters.size()][];
+			rawSettings = new Object[converters.size()][];
+		}
+		final RealLUTConverter<T> converter = //
+			(RealLUTConverter<T>) converters.get(i);
+		final Object[] settings = { converter.getMin(), converter.getMax(),
+			converter.getLUT(), size };
+		if (!Arrays.equals(settings, rawSettings[i])) {
+			final int[] lut = new int[size];
+			final T value = type.createVariable();
+			final ARGBType argb = new ARGBType();
+			for (int v = 0; v < size; v++) {
+				value.setReal(v);
+				converter.convert(value, argb);
+				lut[v] = argb.get();
+			}
+			rawLUTs[i] = lut;
+			rawSettings[i] = settings;
+		}
+		return rawLUTs[i];
+	}
+
+	private static void checkSettings(final int c, final double[] min,
+		final double[] max, final ColorTable8[] luts)
+	{
+		if (min.length != c || max.length != c) throw new IllegalArgumentException(
+			"clamping arrays must be of the same length as the number of channels!");
+
+		if (luts != null && luts.length != c) throw new IllegalArgumentException(
+			"color table array must be of the same length as the number of channels!");
+	}
+
+	/** Converts the given color table into an 8-bit palette. */
+	private static IndexColorModel palette(final ColorTable8 lut) {
+		final int size = lut.getLength();
+		final byte[] r = new byte[size], g = new byte[size], b = new byte[size],
+				a = new byte[size];
+		for (int i = 0; i < size; i++) {
+			final int argb = lut.argb(i);
+			a[i] = (byte) (argb >>> 24);
+			r[i] = (byte) (argb >> 16);
+			g[i] = (byte) (argb >> 8);
+			b[i] = (byte) argb;
+		}
+		return new IndexColorModel(8, size, r, g, b, a);
+	}
+
+	/**
+	 * Adds two ARGB values component-wise, saturating at 255, as
+	 * {@link CompositeXYProjector} does when compositing channels.
+	 */
+	private static int add(final int argb1, final int argb2) {
+		final int a = Math.min(255, (argb1 >>> 24) + (argb2 >>> 24));
+		final int r = Math.min(255, (argb1 >> 16 & 0xff) + (argb2 >> 16 & 0xff));
+		final int g = Math.min(255, (argb1 >> 8 & 0xff) + (argb2 >> 8 & 0xff));
+		final int b = Math.min(255, (argb1 & 0xff) + (argb2 & 0xff));
+		return a << 24 | r << 16 | g << 8 | b;
+	}
+}
@@ -0,0 +1,151 @@
+/*-
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2017 - 2018 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.notebook;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.scijava.Context;
+import org.scijava.InstantiableException;
+import org.scijava.plugin.Parameter;
+import org.scijava.plugin.PluginInfo;
+import org.scijava.service.Service;
+import org.scijava.service.ServiceHelper;
+import org.scijava.util.ClassUtils;
+
+/**
+ * Measures how long each service takes to create and initialize, in order to
+ * find out where the cold-start latency of a context goes.
+ * <p>
+ * Services are loaded one at a time into an initially empty context, with the
+ * required dependencies of each service loaded before the service itself, so
+ * that each measurement covers only a single service.
+ * </p>
+ *
+ * @author Curtis Rueden
+ */
+public final class StartupProfile {
+
+	private StartupProfile() {
+		// Prevent instantiation of utility class.
+	}
+
+	/**
+	 * Profiles the creation of a context with the given services.
+	 *
+	 * @param serviceClasses The services to create, along with their
+	 *          dependencies.
+	 * @return a table with the time spent creating and initializing each
+	 *         service, slowest first, followed by the total.
+	 */
+	@SafeVarargs
+	public static NotebookTable profile(
+		final Class<? extends Service>... serviceClasses)
+	{
+		final Map<String, Double> times = new LinkedHashMap<>();
+		final long start = System.nanoTime();
+		final Context context = new Context(true);
+		try {
+			final ServiceHelper helper = new ServiceHelper(context);
+			final List<PluginInfo<Service>> infos = //
+				new ArrayList<>(context.getPluginIndex().getPlugins(Service.class));
+			Collections.sort(infos);
+			final Set<Class<?>> visited = new HashSet<>();
+			for (final Class<? extends Service> c : serviceClasses) {
+				load(c, context, helper, infos, visited, times);
+			}
+		}
+		finally {
+			context.dispose();
+		}
+		final double total = (System.nanoTime() - start) / 1e6;
+
+		final List<Map.Entry<String, Double>> entries = //
+			new ArrayList<>(times.entrySet());
+		entries.sort((e1, e2) -> Double.compare(e2.getValue(), e1.getValue()));
+		final NotebookTable table = new NotebookTable();
+		for (final Map.Entry<String, Double> entry : entries) {
+			table.addRow("service", entry.getKey(), "milliseconds", entry
+				.getValue());
+		}
+		table.addRow("service", "<total>", "milliseconds", total);
+		return table;
+	}
+
+	// -- Helper methods --
+
+	@SuppressWarnings("unchecked")
+	private static void load(final Class<? extends Service> c,
+		final Context context, final ServiceHelper helper,
+		final List<PluginInfo<Service>> infos, final Set<Class<?>> visited,
+		final Map<String, Double> times)
+	{
+		if (!visited.add(c) || context.getService(c) != null) return;
+
+		// Load the required dependencies first, so they are timed separately.
+		final Class<? extends Service> impl = implementation(c, infos);
+		for (final Field f : ClassUtils.getAnnotatedFields(impl,
+			Parameter.class))
+		{
+			if (!Service.class.isAssignableFrom(f.getType())) continue;
+			if (!f.getAnnotation(Parameter.class).required()) continue;
+			load((Class<? extends Service>) f.getType(), context, helper, infos,
+				visited, times);
+		}
+
+		final long start = System.nanoTime();
+		final Service service = helper.loadService(c);
+		final double elapsed = (System.nanoTime() - start) / 1e6;
+		if (service != null) times.put(service.getClass().getName(), elapsed);
+	}
+
+	/** Finds the highest priority service plugin of the given type. */
+	private static Class<? extends Service> implementation(
+		final Class<? extends Service> c, final List<PluginInfo<Service>> infos)
+	{
+		for (final PluginInfo<Service> info : infos) {
+			try {
+				final Class<? extends Service> impl = info.loadClass();
+				if (c.isAssignableFrom(impl)) return impl;
+			}
+			catch (final InstantiableException exc) {
+				// NB: Skip services which cannot be loaded.
+			}
+		}
+		return c;
+	}
+}
@@ -32,7 +32,8 @@ package net.imagej.notebook.image;
 
 import java.awt.image.BufferedImage;
 
-import net.imagej.notebook.Images;
+import net.imagej.notebook.DisplaySettings;
+import net.imagej.notebook.NotebookService;
 import net.imagej.notebook.mime.HTMLObject;
 import net.imagej.notebook.mime.MIMEConverter;
 
@@ -43,6 +44,12 @@ import org.scijava.plugin.Plugin;
 
 /**
  * Converter from {@link BufferedImage} to {@link HTMLObject}.
+ * <p>
+ * Images larger than the {@link DisplaySettings#getMaxImageDimension()
+ * maximum dimension} of the {@link NotebookService} (1024 pixels by default)
+ * are shrunken before encoding; the full-size image stays available from the
+ * resulting {@link DownscaledImage}.
+ * </p>
  *
  * @author Curtis Rueden
  */
@@ -54,8 +61,14 @@ public class BufferedImageToHTMLConverter extends
 	@Parameter
 	private ConvertService convertService;
 
+	@Parameter(required = false)
+	private NotebookService notebookService;
+
 	@Override
 	protected HTMLObject convert(final BufferedImage image) {
-		return () -> Images.html(image);
+		// NB: Without a NotebookService in the context, use the defaults.
+		final DisplaySettings settings = notebookService == null ? //
+			new DisplaySettings() : notebookService.displaySettings();
+		return new DownscaledImage(image, settings.getMaxImageDimension());
 	}
 }
@@ -30,16 +30,30 @@
 
 package net.imagej.notebook.image;
 
+import java.awt.image.BufferedImage;
+import java.util.List;
+
+import net.imagej.Dataset;
+import net.imagej.axis.Axes;
+import net.imagej.display.ColorMode;
+import net.imagej.display.ColorTables;
 import net.imagej.display.DatasetView;
 import net.imagej.notebook.Images;
 import net.imagej.notebook.mime.HTMLObject;
 import net.imagej.notebook.mime.MIMEConverter;
+import net.imglib2.display.ColorTable8;
+import net.imglib2.img.Img;
 
 import org.scijava.convert.Converter;
 import org.scijava.plugin.Plugin;
 
 /**
  * Converter from {@link DatasetView} to {@link HTMLObject}.
+ * <p>
+ * The view is rendered directly from its channel ranges, color tables and
+ * position, via {@link Images}, rather than via its screen image. As such, it
+ * is not necessary to {@link DatasetView#rebuild()} the view first.
+ * </p>
  *
  * @author Curtis Rueden
  */
@@ -51,6 +65,41 @@ public class DatasetViewToHTMLConverter extends
 	@Override
 	protected HTMLObject convert(final DatasetView imageView) {
 		final String title = imageView.getData().getName();
-		return () -> Images.html(imageView.getScreenImage().image(), title);
+		return () -> Images.html(render(imageView), title);
+	}
+
+	// -- Helper methods --
+
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	private static BufferedImage render(final DatasetView imageView) {
+		final Dataset data = imageView.getData();
+		final int xAxis = data.dimensionIndex(Axes.X);
+		final int yAxis = data.dimensionIndex(Axes.Y);
+		final int chAxis = data.dimensionIndex(Axes.CHANNEL);
+
+		final long[] pos = new long[data.numDimensions()];
+		for (int d = 0; d < pos.length; d++) {
+			pos[d] = imageView.getLongPosition(d) - data.min(d);
+		}
+
+		final List<ColorTable8> colorTables = imageView.getColorTables();
+		final boolean composite = chAxis >= 0 && //
+			imageView.getColorMode() == ColorMode.COMPOSITE;
+
+		// Composite views blend all channels; others show only the current one.
+		final int first = composite || chAxis < 0 ? 0 : (int) pos[chAxis];
+		final int count = composite ? (int) data.dimension(chAxis) : 1;
+		final double[] min = new double[count];
+		final double[] max = new double[count];
+		final ColorTable8[] luts = new ColorTable8[count];
+		for (int i = 0; i < count; i++) {
+			final int c = first + i;
+			min[i] = imageView.getChannelMin(c);
+			max[i] = imageView.getChannelMax(c);
+			luts[i] = imageView.getColorMode() == ColorMode.GRAYSCALE ? //
+				ColorTables.GRAYS : colorTables.get(c);
+		}
+		return Images.bufferedImage((Img) data, xAxis, yAxis,
+			composite ? chAxis : -1, min, max, luts, pos);
 	}
 }
@@ -0,0 +1,87 @@
+/*-
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2017 - 2018 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.notebook.image;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+import net.imagej.notebook.Images;
+import net.imagej.notebook.mime.HTMLObject;
+
+/**
+ * An {@link HTMLObject} which embeds a {@link BufferedImage}, shrunken to at
+ * most a maximum width and height. The full-size image remains available via
+ * {@link #getOriginal()}.
+ *
+ * @author Curtis Rueden
+ */
+public class DownscaledImage implements HTMLObject {
+
+	private final BufferedImage original;
+	private final int maxDimension;
+	private BufferedImage image;
+
+	/**
+	 * @param original The full-size image.
+	 * @param maxDimension The maximum width and height of the displayed image,
+	 *          or 0 to display the image at its full size.
+	 * @throws IllegalArgumentException if the maximum dimension is negative.
+	 */
+	public DownscaledImage(final BufferedImage original,
+		final int maxDimension)
+	{
+		if (maxDimension < 0) {
+			throw new IllegalArgumentException("Invalid maximum dimension: " +
+				maxDimension);
+		}
+		this.original = original;
+		this.maxDimension = maxDimension;
+	}
+
+	/** Gets the full-size image. */
+	public BufferedImage getOriginal() {
+		return original;
+	}
+
+	/** Gets the image as displayed, shrinking it on first use if needed. */
+	public synchronized BufferedImage getImage() {
+		if (image == null) {
+			image = maxDimension > 0 ? //
+				Images.downscale(original, maxDimension) : original;
+		}
+		return image;
+	}
+
+	@Override
+	public String data() throws IOException {
+		return Images.html(getImage());
+	}
+}
@@ -36,7 +36,6 @@ import net.imagej.notebook.Images;
 import net.imagej.notebook.mime.HTMLObject;
 import net.imagej.notebook.mime.MIMEConverter;
 import net.imglib2.RandomAccessibleInterval;
-import net.imglib2.converter.Converters;
 import net.imglib2.type.numeric.ARGBType;
 import net.imglib2.type.numeric.RealType;
 import net.imglib2.util.Util;
@@ -77,7 +76,7 @@ public class RAIToHTMLConverter extends
 		final RandomAccessibleInterval<ARGBType> image) throws IOException
 	{
 		// NB: ignoring alpha
-		return encodeRealTypeImage(Converters.argbChannels(image, 1, 2, 3));
+		return Images.html(Images.argbImage(image));
 	}
 
 	private static <T extends RealType<T>> String encodeRealTypeImage(
@@ -31,8 +31,15 @@
 package net.imagej.notebook.mime;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
 
+import net.imagej.notebook.DisplaySettings;
+import net.imagej.notebook.Metrics;
+import net.imagej.notebook.NotebookService;
+
 import org.apache.commons.text.StringEscapeUtils;
 import org.scijava.Priority;
 import org.scijava.convert.ConvertService;
@@ -42,6 +49,18 @@ import org.scijava.plugin.Plugin;
 
 /**
  * Converter from {@link List} to {@link HTMLObject}.
+ * <p>
+ * The size of the output is bounded by the {@link DisplaySettings} of the
+ * {@link NotebookService}: at most a maximum number of elements of each list
+ * are shown, nested lists are expanded down to a maximum depth, and output
+ * stops once it exceeds a maximum number of characters. Elided content is
+ * summarized (e.g., "&hellip; 9000 more").
+ * </p>
+ * <p>
+ * Only nested lists which would be displayed by this converter are expanded
+ * in place; other lists, such as {@link org.scijava.table.Table}s, are
+ * displayed by their own converters.
+ * </p>
  *
  * @author Curtis Rueden
  */
@@ -51,6 +70,9 @@ public class ListToHTMLConverter extends MIMEConverter<List<?>, HTMLObject> {
 	@Parameter
 	private ConvertService convertService;
 
+	@Parameter(required = false)
+	private NotebookService notebookService;
+
 	@Override
 	protected HTMLObject convert(final List<?> list) {
 		return () -> html(list);
@@ -58,21 +80,83 @@ public class ListToHTMLConverter extends MIMEConverter<List<?>, HTMLObject> {
 
 	// -- Helper methods --
 
+	/**
+	 * Writes the given list, expanding nested lists in place. Uses an explicit
+	 * stack rather than recursion, so deeply nested lists cannot overflow the
+	 * call stack.
+	 */
 	private String html(final List<?> list) throws IOException {
+		final Metrics metrics = Metrics.active();
+		final long start = metrics == null ? 0 : System.nanoTime();
+		// NB: Without a NotebookService in the context, use the defaults.
+		final DisplaySettings settings = notebookService == null ? //
+			new DisplaySettings() : notebookService.displaySettings();
+		final int itemLimit = settings.getMaxListItems();
+		final int depthLimit = settings.getMaxListDepth();
+		final long charLimit = settings.getMaxListChars();
 		final StringBuilder sb = new StringBuilder();
-		for (final Object item : list)
-			sb.append(html(item));
-
-		return sb.toString();
+		final Deque<Frame> stack = new ArrayDeque<>();
+		stack.push(new Frame(list));
+		while (!stack.isEmpty()) {
+			if (sb.length() > charLimit) {
+				sb.append("<div>&hellip; output truncated</div>");
+				break;
+			}
+			final Frame frame = stack.peek();
+			if (!frame.items.hasNext()) {
+				stack.pop();
+				continue;
+			}
+			if (frame.index >= itemLimit) {
+				more(sb, frame.size - frame.index);
+				stack.pop();
+				continue;
+			}
+			final Object item = frame.items.next();
+			frame.index++;
+			final Converter<?, ?> converter = item == null ? null : //
+				convertService.getHandler(item, HTMLObject.class);
+			if (converter == this) {
+				final List<?> nested = (List<?>) item;
+				if (stack.size() < depthLimit) stack.push(new Frame(nested));
+				else more(sb, nested.size());
+			}
+			else sb.append(html(item, converter));
+		}
+		final String html = sb.toString();
+		if (metrics != null) metrics.record("list.html", start, html);
+		return html;
 	}
 
 	/** Gets an HTML string representing the given object. */
-	private String html(final Object o) throws IOException {
-		final HTMLObject htmlObj = convertService.convert(o, HTMLObject.class);
-		return htmlObj == null ? escape(o.toString()) : htmlObj.data();
+	private String html(final Object o, final Converter<?, ?> converter)
+		throws IOException
+	{
+		final HTMLObject htmlObj = converter == null ? null : converter.convert(o,
+			HTMLObject.class);
+		return htmlObj == null ? escape(String.valueOf(o)) : htmlObj.data();
+	}
+
+	private static void more(final StringBuilder sb, final int count) {
+		sb.append("<div>&hellip; ").append(count).append(" more</div>");
 	}
 
 	private static String escape(final String text) {
 		return StringEscapeUtils.escapeHtml4(text);
 	}
+
+	// -- Helper classes --
+
+	/** A list being written, and the index of its next element. */
+	private static class Frame {
+
+		private final Iterator<?> items;
+		private final int size;
+		private int index;
+
+		private Frame(final List<?> list) {
+			items = list.iterator();
+			size = list.size();
+		}
+	}
 }
@@ -47,6 +47,12 @@ public abstract class MIMEConverter<I, O extends MIMEObject> extends
 	@Parameter
 	protected LogService log;
 
+	// NB: Resolving the type parameters reflects on the class hierarchy, and
+	// every converter lookup asks every converter for its types, so they are
+	// resolved once. A racing thread at worst resolves them again.
+	private Class<I> inputType;
+	private Class<O> outputType;
+
 	@Override
 	public <T> T convert(final Object src, final Class<T> dest) {
 		if (!(getInputType().isInstance(src))) //
@@ -65,13 +71,21 @@ public abstract class MIMEConverter<I, O extends MIMEObject> extends
 	@Override
 	@SuppressWarnings("unchecked")
 	public Class<O> getOutputType() {
-		return (Class<O>) Types.raw(Types.param(getClass(), Converter.class, 1));
+		if (outputType == null) {
+			outputType = (Class<O>) Types.raw(Types.param(getClass(),
+				Converter.class, 1));
+		}
+		return outputType;
 	}
 
 	@Override
 	@SuppressWarnings("unchecked")
 	public Class<I> getInputType() {
-		return (Class<I>) Types.raw(Types.param(getClass(), Converter.class, 0));
+		if (inputType == null) {
+			inputType = (Class<I>) Types.raw(Types.param(getClass(),
+				Converter.class, 0));
+		}
+		return inputType;
 	}
 
 	protected abstract O convert(final I obj);
@@ -0,0 +1,461 @@
+/*-
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2017 - 2018 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.notebook.table;
+
+import java.util.AbstractList;
+
+import net.imglib2.RandomAccess;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.util.Intervals;
+
+import org.scijava.table.Column;
+import org.scijava.table.DefaultGenericTable;
+import org.scijava.table.DoubleColumn;
+import org.scijava.table.FloatColumn;
+import org.scijava.table.GenericTable;
+import org.scijava.table.IntColumn;
+import org.scijava.table.LongColumn;
+
+/**
+ * Utility methods for viewing primitive arrays and images as tables.
+ * <p>
+ * Unlike {@link org.scijava.table.Tables#wrap}, which requires boxed
+ * {@link java.util.List} or {@link java.util.Map} input, the tables created
+ * here read each cell from the underlying array or image on demand, so
+ * rendering and export never copy the data.
+ * </p>
+ *
+ * @author Curtis Rueden
+ */
+public final class ArrayTables {
+
+	private ArrayTables() {
+		// Prevent instantiation of utility class.
+	}
+
+	/** Wraps the given array as a single-column table. */
+	public static GenericTable wrap(final double[] data, final String header) {
+		return table(data.length, new DoubleArrayColumn(data, header));
+	}
+
+	/** Wraps the given array as a single-column table. */
+	public static GenericTable wrap(final float[] data, final String header) {
+		return table(data.length, new FloatArrayColumn(data, header));
+	}
+
+	/** Wraps the given array as a single-column table. */
+	public static GenericTable wrap(final long[] data, final String header) {
+		return table(data.length, new LongArrayColumn(data, header));
+	}
+
+	/** Wraps the given array as a single-column table. */
+	public static GenericTable wrap(final int[] data, final String header) {
+		return table(data.length, new IntArrayColumn(data, header));
+	}
+
+	/**
+	 * Wraps the given one- or two-dimensional image as a table. A 1D image
+	 * becomes a single column; for a 2D image, the first dimension indexes the
+	 * columns and the second dimension indexes the rows.
+	 *
+	 * @param source The image to wrap. Its minimum is mapped to the first row
+	 *          and column.
+	 * @return a table backed by the image.
+	 * @throws IllegalArgumentException if the image has more than two
+	 *           dimensions, or is too large to index with an {@code int}.
+	 */
+	public static <T extends RealType<T>> GenericTable wrap(
+		final RandomAccessibleInterval<T> source)
+	{
+		final int numDims = source.numDimensions();
+		if (numDims < 1 || numDims > 2) {
+			throw new IllegalArgumentException("Expected a 1D or 2D image, not " +
+				numDims + "D");
+		}
+		final long rows = numDims == 1 ? source.dimension(0) : source.dimension(1);
+		final long cols = numDims == 1 ? 1 : source.dimension(0);
+		if (rows > Integer.MAX_VALUE || cols > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Image is too large: " + cols +
+				" x " + rows);
+		}
+		final DefaultGenericTable table = new ViewTable();
+		table.setRowCount((int) rows);
+		// NB: All columns read the image through the same accessor.
+		final Grid<T> grid = new Grid<>(source);
+		for (int col = 0; col < cols; col++) {
+			table.add(new RealColumn<>(grid, col, (int) rows, null));
+		}
+		return table;
+	}
+
+	// -- Helper methods --
+
+	/**
+	 * Gets the primitive array backing the given column, if any: that of a
+	 * SciJava {@code double}, {@code float}, {@code long} or {@code int}
+	 * column, or of a column wrapping an array here. The array may be longer
+	 * than the table.
+	 *
+	 * @return the array, or null if the column is not backed by one.
+	 */
+	static Object primitiveArray(final Column<?> column) {
+		if (column instanceof ViewColumn) return ((ViewColumn<?>) column).array();
+		if (column instanceof DoubleColumn) {
+			return ((DoubleColumn) column).getArray();
+		}
+		if (column instanceof FloatColumn) return ((FloatColumn) column).getArray();
+		if (column instanceof LongColumn) return ((LongColumn) column).getArray();
+		if (column instanceof IntColumn) return ((IntColumn) column).getArray();
+		return null;
+	}
+
+	private static GenericTable table(final int rows, final Column<?> column) {
+		final DefaultGenericTable table = new ViewTable();
+		// NB: Set the row count before adding the column, so that the table does
+		// not try to resize it.
+		table.setRowCount(rows);
+		table.add(column);
+		return table;
+	}
+
+	// -- Helper classes --
+
+	/**
+	 * A table whose rows cannot be added or removed while it holds a column
+	 * backed by existing data. {@link DefaultGenericTable} moves the cells of
+	 * later rows before it resizes the columns, so the change is rejected up
+	 * front, leaving both the table and the data untouched.
+	 */
+	private static class ViewTable extends DefaultGenericTable {
+
+		@Override
+		public void setRowCount(final int rowCount) {
+			if (rowCount != getRowCount()) checkResizable();
+			super.setRowCount(rowCount);
+		}
+
+		@Override
+		public void insertRows(final int row, final int count) {
+			if (count != 0) checkResizable();
+			super.insertRows(row, count);
+		}
+
+		@Override
+		public void insertRows(final int row, final String... headers) {
+			if (headers.length != 0) checkResizable();
+			super.insertRows(row, headers);
+		}
+
+		@Override
+		public void removeRows(final int row, final int count) {
+			if (count != 0) checkResizable();
+			super.removeRows(row, count);
+		}
+
+		@Override
+		public boolean add(final Column<? extends Object> column) {
+			if (column.size() > getRowCount()) checkResizable();
+			return super.add(column);
+		}
+
+		@Override
+		public void add(final int col, final Column<? extends Object> column) {
+			if (column.size() > getRowCount()) checkResizable();
+			super.add(col, column);
+		}
+
+		private void checkResizable() {
+			for (final Column<?> column : this) {
+				if (column instanceof ViewColumn) {
+					throw new UnsupportedOperationException(
+						"Cannot resize a table backed by existing data");
+				}
+			}
+		}
+	}
+
+	/** A fixed-size column backed by existing data. */
+	private abstract static class ViewColumn<T> extends AbstractList<T>
+		implements Column<T>
+	{
+
+		private final Class<T> type;
+		private String header;
+
+		private ViewColumn(final Class<T> type, final String header) {
+			this.type = type;
+			this.header = header;
+		}
+
+		@Override
+		public String getHeader() {
+			return header;
+		}
+
+		@Override
+		public void setHeader(final String header) {
+			this.header = header;
+		}
+
+		@Override
+		public Class<T> getType() {
+			return type;
+		}
+
+		/** Gets the primitive array backing this column, or null if none. */
+		Object array() {
+			return null;
+		}
+
+		@Override
+		public void setSize(final int size) {
+			if (size != size()) {
+				throw new UnsupportedOperationException(
+					"Cannot resize a column backed by existing data");
+			}
+		}
+
+		@Override
+		public void fill(final T[] values) {
+			fill(values, 0);
+		}
+
+		@Override
+		public void fill(final T[] values, final int offset) {
+			for (int i = 0; i < values.length; i++) {
+				set(offset + i, values[i]);
+			}
+		}
+	}
+
+	private static class DoubleArrayColumn extends ViewColumn<Double> {
+
+		private final double[] data;
+
+		private DoubleArrayColumn(final double[] data, final String header) {
+			super(Double.class, header);
+			this.data = data;
+		}
+
+		@Override
+		Object array() {
+			return data;
+		}
+
+		@Override
+		public Double get(final int index) {
+			return data[index];
+		}
+
+		@Override
+		public Double set(final int index, final Double value) {
+			final double old = data[index];
+			data[index] = value;
+			return old;
+		}
+
+		@Override
+		public int size() {
+			return data.length;
+		}
+	}
+
+	private static class FloatArrayColumn extends ViewColumn<Float> {
+
+		private final float[] data;
+
+		private FloatArrayColumn(final float[] data, final String header) {
+			super(Float.class, header);
+			this.data = data;
+		}
+
+		@Override
+		Object array() {
+			return data;
+		}
+
+		@Override
+		public Float get(final int index) {
+			return data[index];
+		}
+
+		@Override
+		public Float set(final int index, final Float value) {
+			final float old = data[index];
+			data[index] = value;
+			return old;
+		}
+
+		@Override
+		public int size() {
+			return data.length;
+		}
+	}
+
+	private static class LongArrayColumn extends ViewColumn<Long> {
+
+		private final long[] data;
+
+		private LongArrayColumn(final long[] data, final String header) {
+			super(Long.class, header);
+			this.data = data;
+		}
+
+		@Override
+		Object array() {
+			return data;
+		}
+
+		@Override
+		public Long get(final int index) {
+			return data[index];
+		}
+
+		@Override
+		public Long set(final int index, final Long value) {
+			final long old = data[index];
+			data[index] = value;
+			return old;
+		}
+
+		@Override
+		public int size() {
+			return data.length;
+		}
+	}
+
+	private static class IntArrayColumn extends ViewColumn<Integer> {
+
+		private final int[] data;
+
+		private IntArrayColumn(final int[] data, final String header) {
+			super(Integer.class, header);
+			this.data = data;
+		}
+
+		@Override
+		Object array() {
+			return data;
+		}
+
+		@Override
+		public Integer get(final int index) {
+			return data[index];
+		}
+
+		@Override
+		public Integer set(final int index, final Integer value) {
+			final int old = data[index];
+			data[index] = value;
+			return old;
+		}
+
+		@Override
+		public int size() {
+			return data.length;
+		}
+	}
+
+	/** A one- or two-dimensional image, shared by the columns viewing it. */
+	private static class Grid<T extends RealType<T>> {
+
+		private final RandomAccess<T> access;
+		private final long[] min;
+
+		private Grid(final RandomAccessibleInterval<T> source) {
+			access = source.randomAccess();
+			min = Intervals.minAsLongArray(source);
+		}
+
+		/**
+		 * Moves the accessor to the given cell. Callers must synchronize on the
+		 * grid until they are done with the returned element.
+		 */
+		private T cell(final int col, final int row) {
+			if (min.length == 1) access.setPosition(min[0] + row, 0);
+			else {
+				access.setPosition(min[0] + col, 0);
+				access.setPosition(min[1] + row, 1);
+			}
+			return access.get();
+		}
+	}
+
+	/** A column of an image. */
+	private static class RealColumn<T extends RealType<T>> extends
+		ViewColumn<Double>
+	{
+
+		private final Grid<T> grid;
+		private final int col;
+		private final int size;
+
+		private RealColumn(final Grid<T> grid, final int col, final int size,
+			final String header)
+		{
+			super(Double.class, header);
+			this.grid = grid;
+			this.col = col;
+			this.size = size;
+		}
+
+		@Override
+		public Double get(final int index) {
+			checkIndex(index);
+			synchronized (grid) {
+				return grid.cell(col, index).getRealDouble();
+			}
+		}
+
+		@Override
+		public Double set(final int index, final Double value) {
+			checkIndex(index);
+			synchronized (grid) {
+				final T cell = grid.cell(col, index);
+				final double old = cell.getRealDouble();
+				cell.setReal(value);
+				return old;
+			}
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		private void checkIndex(final int index) {
+			if (index < 0 || index >= size) {
+				throw new IndexOutOfBoundsException("Index: " + index);
+			}
+		}
+	}
+}
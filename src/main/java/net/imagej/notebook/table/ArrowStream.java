@@ -0,0 +1,575 @@
+/*-
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2017 - 2018 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.notebook.table;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntFunction;
+
+import net.imagej.notebook.ColumnarTable;
+import net.imagej.notebook.NotebookTable;
+
+import org.scijava.table.Column;
+import org.scijava.table.Table;
+
+/**
+ * Writes tables in the
+ * <a href="https://arrow.apache.org/docs/format/Columnar.html">Apache Arrow
+ * IPC streaming format</a>: a schema message, followed by a single record
+ * batch holding all rows.
+ * <p>
+ * Primitive columns, including those of {@link ArrayTables}, are written
+ * directly from their arrays, without boxing.
+ * {@code double} and {@code float} values become {@code Float64} and
+ * {@code Float32} columns, {@code long} and {@code int} values become
+ * {@code Int64} and {@code Int32} columns, and everything else becomes a
+ * {@code Utf8} column of strings. Null cells are recorded as such.
+ * </p>
+ *
+ * @author Curtis Rueden
+ */
+public final class ArrowStream {
+
+	private static final int CONTINUATION = 0xFFFFFFFF;
+	private static final int METADATA_V5 = 4;
+
+	// MessageHeader union types.
+	private static final int SCHEMA = 1;
+	private static final int RECORD_BATCH = 3;
+
+	// Type union types.
+	private static final int INT = 2;
+	private static final int FLOATING_POINT = 3;
+	private static final int UTF8 = 5;
+
+	private final int rowCount;
+	private final List<Vector> vectors = new ArrayList<>();
+
+	/** Creates an empty stream of tables with the given number of rows. */
+	public ArrowStream(final int rowCount) {
+		this.rowCount = rowCount;
+	}
+
+	/** Creates a stream from the given SciJava table. */
+	public static ArrowStream of(final Table<?, ?> table) {
+		final int rows = table.getRowCount();
+		final ArrowStream stream = new ArrowStream(rows);
+		for (int col = 0; col < table.getColumnCount(); col++) {
+			final Column<?> column = table.get(col);
+			String name = table.getColumnHeader(col);
+			if (name == null) name = "" + col;
+			final Object array = ArrayTables.primitiveArray(column);
+			if (array instanceof double[]) stream.addColumn(name, (double[]) array);
+			else if (array instanceof float[]) {
+				stream.addColumn(name, (float[]) array);
+			}
+			else if (array instanceof long[]) stream.addColumn(name, (long[]) array);
+			else if (array instanceof int[]) stream.addColumn(name, (int[]) array);
+			else stream.addColumn(name, column::get);
+		}
+		return stream;
+	}
+
+	/** Creates a stream from the given columnar table. */
+	public static ArrowStream of(final ColumnarTable table) {
+		final int rows = table.getRowCount();
+		final ArrowStream stream = new ArrowStream(rows);
+		for (int col = 0; col < table.getColumnCount(); col++) {
+			final String name = table.getColumnHeader(col);
+			final Class<?> type = table.getColumnType(col);
+			final Object array = table.getArray(col);
+			if (type == double.class) {
+				stream.addColumn(name, (double[]) array).markMissing(table, col);
+			}
+			else if (type == long.class) {
+				stream.addColumn(name, (long[]) array).markMissing(table, col);
+			}
+			else if (type == int.class) {
+				stream.addColumn(name, (int[]) array).markMissing(table, col);
+			}
+			else if (type == String.class) {
+				// NB: Encode each distinct string only once.
+				final List<String> dictionary = table.getDictionary(col);
+				final byte[][] bytes = new byte[dictionary.size()][];
+				for (int i = 0; i < bytes.length; i++) {
+					bytes[i] = dictionary.get(i).getBytes(StandardCharsets.UTF_8);
+				}
+				final int[] codes = (int[]) array;
+				stream.vectors.add(new Utf8Vector(name, rows, //
+					row -> codes[row] < 0 ? null : bytes[codes[row]]));
+			}
+			else {
+				final int c = col;
+				stream.addColumn(name, row -> table.get(c, row));
+			}
+		}
+		return stream;
+	}
+
+	/**
+	 * Creates a stream from the given notebook table, with one column per
+	 * distinct cell name, in order of first appearance.
+	 */
+	public static ArrowStream of(final NotebookTable table) {
+		final Map<String, Object> names = new LinkedHashMap<>();
+		for (final Map<String, Object> row : table) {
+			for (final String name : row.keySet()) {
+				names.put(name, name);
+			}
+		}
+		final ArrowStream stream = new ArrowStream(table.size());
+		for (final String name : names.keySet()) {
+			stream.addColumn(name, row -> table.get(row).get(name));
+		}
+		return stream;
+	}
+
+	/**
+	 * Adds a {@code Float64} column. The first {@link #getRowCount()} elements
+	 * of the array are written.
+	 */
+	public ArrowStream addColumn(final String name, final double[] values) {
+		check(values.length);
+		return add(new PrimitiveVector(name, FLOATING_POINT, 64, (out, row) -> out
+			.putLong(Double.doubleToRawLongBits(values[row]))));
+	}
+
+	/**
+	 * Adds a {@code Float32} column. The first {@link #getRowCount()} elements
+	 * of the array are written.
+	 */
+	public ArrowStream addColumn(final String name, final float[] values) {
+		check(values.length);
+		return add(new PrimitiveVector(name, FLOATING_POINT, 32, (out, row) -> out
+			.putInt(Float.floatToRawIntBits(values[row]))));
+	}
+
+	/**
+	 * Adds an {@code Int64} column. The first {@link #getRowCount()} elements of
+	 * the array are written.
+	 */
+	public ArrowStream addColumn(final String name, final long[] values) {
+		check(values.length);
+		return add(new PrimitiveVector(name, INT, 64, (out, row) -> out.putLong(
+			values[row])));
+	}
+
+	/**
+	 * Adds an {@code Int32} column. The first {@link #getRowCount()} elements of
+	 * the array are written.
+	 */
+	public ArrowStream addColumn(final String name, final int[] values) {
+		check(values.length);
+		return add(new PrimitiveVector(name, INT, 32, (out, row) -> out.putInt(
+			values[row])));
+	}
+
+	/**
+	 * Adds a column of boxed values. If all non-null values are integers, it
+	 * becomes an {@code Int64} column; otherwise, if they are all numbers, a
+	 * {@code Float64} column; and otherwise, a {@code Utf8} column of their
+	 * string representations.
+	 */
+	public ArrowStream addColumn(final String name,
+		final IntFunction<?> function)
+	{
+		// NB: Compute each value only once.
+		final Object[] values = new Object[rowCount];
+		boolean integers = true, numbers = true, empty = true;
+		for (int row = 0; row < rowCount; row++) {
+			final Object value = function.apply(row);
+			values[row] = value;
+			if (value == null) continue;
+			empty = false;
+			if (!(value instanceof Number)) numbers = integers = false;
+			else if (!(value instanceof Long || value instanceof Integer ||
+				value instanceof Short || value instanceof Byte)) integers = false;
+		}
+		if (empty || !numbers) {
+			return add(new Utf8Vector(name, rowCount, row -> values[row] == null
+				? null : values[row].toString().getBytes(StandardCharsets.UTF_8)));
+		}
+		final PrimitiveVector vector = integers ? //
+			new PrimitiveVector(name, INT, 64, (out, row) -> {
+				final Object value = values[row];
+				out.putLong(value == null ? 0 : ((Number) value).longValue());
+			}) : //
+			new PrimitiveVector(name, FLOATING_POINT, 64, (out, row) -> {
+				final Object value = values[row];
+				out.putLong(Double.doubleToRawLongBits(value == null ? Double.NaN
+					: ((Number) value).doubleValue()));
+			});
+		vector.nulls = new boolean[rowCount];
+		for (int row = 0; row < rowCount; row++) {
+			if (values[row] == null) {
+				vector.nulls[row] = true;
+				vector.nullCount++;
+			}
+		}
+		return add(vector);
+	}
+
+	/** Gets the number of rows written for each column. */
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	/** Writes the stream to the given output stream. */
+	public void write(final OutputStream out) throws IOException {
+		final Sink sink = new Sink(out);
+
+		// Write the schema.
+		final List<FlatBuffer.Table> fields = new ArrayList<>();
+		for (final Vector v : vectors) {
+			fields.add(new FlatBuffer.Table() //
+				.addString(0, v.name) //
+				.addBool(1, true) //
+				.addByte(2, v.typeId()) //
+				.addTable(3, v.type()) //
+				.addTables(5, new ArrayList<>()));
+		}
+		final FlatBuffer.Table schema = new FlatBuffer.Table().addTables(1, fields);
+		message(sink, SCHEMA, schema, 0);
+
+		// Lay out the record batch.
+		final long[] nodes = new long[2 * vectors.size()];
+		final List<Long> buffers = new ArrayList<>();
+		long offset = 0;
+		for (int i = 0; i < vectors.size(); i++) {
+			final Vector v = vectors.get(i);
+			nodes[2 * i] = rowCount;
+			nodes[2 * i + 1] = v.nullCount;
+			final long validity = v.nullCount == 0 ? 0 : (rowCount + 7) / 8;
+			buffers.add(offset);
+			buffers.add(validity);
+			offset += pad(validity);
+			for (final long length : v.bufferLengths(rowCount)) {
+				buffers.add(offset);
+				buffers.add(length);
+				offset += pad(length);
+			}
+		}
+		final long[] bufferArray = new long[buffers.size()];
+		for (int i = 0; i < bufferArray.length; i++) {
+			bufferArray[i] = buffers.get(i);
+		}
+		final FlatBuffer.Table batch = new FlatBuffer.Table() //
+			.addLong(0, rowCount) //
+			.addStructs(1, nodes) //
+			.addStructs(2, bufferArray);
+		message(sink, RECORD_BATCH, batch, offset);
+
+		// Write the record batch body.
+		for (final Vector v : vectors) {
+			if (v.nullCount > 0) {
+				for (int row = 0; row < rowCount; row += 8) {
+					int bits = 0;
+					for (int b = 0; b < 8 && row + b < rowCount; b++) {
+						if (!v.nulls[row + b]) bits |= 1 << b;
+					}
+					sink.putByte(bits);
+				}
+				sink.pad();
+			}
+			v.writeBuffers(sink, rowCount);
+		}
+
+		// Write the end-of-stream marker.
+		sink.putInt(CONTINUATION);
+		sink.putInt(0);
+		sink.flush();
+	}
+
+	/** Writes the stream into a byte array. */
+	public byte[] toByteArray() {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try {
+			write(out);
+		}
+		catch (final IOException exc) {
+			// NB: Writing to a ByteArrayOutputStream never fails.
+			throw new IllegalStateException(exc);
+		}
+		return out.toByteArray();
+	}
+
+	/** Writes the stream as a base64-encoded string. */
+	public String toBase64() throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (final OutputStream out = Base64.getEncoder().wrap(bytes)) {
+			write(out);
+		}
+		return bytes.toString("US-ASCII");
+	}
+
+	// -- Helper methods --
+
+	/** Marks the missing cells of the given column as null in the last vector. */
+	private void markMissing(final ColumnarTable table, final int col) {
+		final Vector vector = vectors.get(vectors.size() - 1);
+		for (int row = 0; row < rowCount; row++) {
+			if (!table.isMissing(col, row)) continue;
+			if (vector.nulls == null) vector.nulls = new boolean[rowCount];
+			vector.nulls[row] = true;
+			vector.nullCount++;
+		}
+	}
+
+	private ArrowStream add(final Vector vector) {
+		vectors.add(vector);
+		return this;
+	}
+
+	private void check(final int length) {
+		if (length < rowCount) {
+			throw new IllegalArgumentException("Expected " + rowCount +
+				" values but got " + length);
+		}
+	}
+
+	private static void message(final Sink sink, final int headerType,
+		final FlatBuffer.Table header, final long bodyLength) throws IOException
+	{
+		final byte[] metadata = FlatBuffer.finish(new FlatBuffer.Table() //
+			.addShort(0, METADATA_V5) //
+			.addByte(1, headerType) //
+			.addTable(2, header) //
+			.addLong(3, bodyLength));
+		sink.putInt(CONTINUATION);
+		sink.putInt(metadata.length);
+		sink.putBytes(metadata);
+	}
+
+	private static long pad(final long length) {
+		return (length + 7) / 8 * 8;
+	}
+
+	// -- Helper classes --
+
+	/** One column of the record batch. */
+	private abstract static class Vector {
+
+		private final String name;
+		boolean[] nulls;
+		int nullCount;
+
+		private Vector(final String name) {
+			this.name = name;
+		}
+
+		abstract int typeId();
+
+		abstract FlatBuffer.Table type();
+
+		/** Gets the lengths of the buffers after the validity bitmap. */
+		abstract long[] bufferLengths(int rows);
+
+		/** Writes the buffers after the validity bitmap, each padded. */
+		abstract void writeBuffers(Sink sink, int rows) throws IOException;
+	}
+
+	@FunctionalInterface
+	private interface CellWriter {
+
+		void write(Sink sink, int row) throws IOException;
+	}
+
+	/** A column of fixed-width numbers. */
+	private static class PrimitiveVector extends Vector {
+
+		private final int typeId;
+		private final int bitWidth;
+		private final CellWriter writer;
+
+		private PrimitiveVector(final String name, final int typeId,
+			final int bitWidth, final CellWriter writer)
+		{
+			super(name);
+			this.typeId = typeId;
+			this.bitWidth = bitWidth;
+			this.writer = writer;
+		}
+
+		@Override
+		int typeId() {
+			return typeId;
+		}
+
+		@Override
+		FlatBuffer.Table type() {
+			if (typeId == INT) {
+				return new FlatBuffer.Table().addInt(0, bitWidth).addBool(1, true);
+			}
+			// NB: FloatingPoint precision: 1 = SINGLE, 2 = DOUBLE.
+			return new FlatBuffer.Table().addShort(0, bitWidth == 32 ? 1 : 2);
+		}
+
+		@Override
+		long[] bufferLengths(final int rows) {
+			return new long[] { (long) rows * bitWidth / 8 };
+		}
+
+		@Override
+		void writeBuffers(final Sink sink, final int rows) throws IOException {
+			for (int row = 0; row < rows; row++) {
+				writer.write(sink, row);
+			}
+			sink.pad();
+		}
+	}
+
+	/** A column of UTF-8 strings. */
+	private static class Utf8Vector extends Vector {
+
+		private final byte[][] values;
+		private final long dataLength;
+
+		private Utf8Vector(final String name, final int rows,
+			final IntFunction<byte[]> function)
+		{
+			super(name);
+			values = new byte[rows][];
+			long length = 0;
+			for (int row = 0; row < rows; row++) {
+				final byte[] value = function.apply(row);
+				values[row] = value;
+				if (value == null) {
+					if (nulls == null) nulls = new boolean[rows];
+					nulls[row] = true;
+					nullCount++;
+				}
+				else length += value.length;
+			}
+			if (length > Integer.MAX_VALUE) {
+				throw new IllegalArgumentException("Column is too large: " + name);
+			}
+			dataLength = length;
+		}
+
+		@Override
+		int typeId() {
+			return UTF8;
+		}
+
+		@Override
+		FlatBuffer.Table type() {
+			return new FlatBuffer.Table();
+		}
+
+		@Override
+		long[] bufferLengths(final int rows) {
+			return new long[] { 4L * (rows + 1), dataLength };
+		}
+
+		@Override
+		void writeBuffers(final Sink sink, final int rows) throws IOException {
+			int offset = 0;
+			sink.putInt(offset);
+			for (int row = 0; row < rows; row++) {
+				if (values[row] != null) offset += values[row].length;
+				sink.putInt(offset);
+			}
+			sink.pad();
+			for (int row = 0; row < rows; row++) {
+				if (values[row] != null) sink.putBytes(values[row]);
+			}
+			sink.pad();
+		}
+	}
+
+	/** Buffered little-endian output. */
+	private static class Sink {
+
+		private final OutputStream out;
+		private final byte[] buf = new byte[8192];
+		private int pos;
+		private long count;
+
+		private Sink(final OutputStream out) {
+			this.out = out;
+		}
+
+		void putByte(final int value) throws IOException {
+			if (pos == buf.length) flush();
+			buf[pos++] = (byte) value;
+			count++;
+		}
+
+		void putInt(final int value) throws IOException {
+			if (pos + 4 > buf.length) flush();
+			for (int b = 0; b < 32; b += 8) {
+				buf[pos++] = (byte) (value >>> b);
+			}
+			count += 4;
+		}
+
+		void putLong(final long value) throws IOException {
+			if (pos + 8 > buf.length) flush();
+			for (int b = 0; b < 64; b += 8) {
+				buf[pos++] = (byte) (value >>> b);
+			}
+			count += 8;
+		}
+
+		void putBytes(final byte[] bytes) throws IOException {
+			if (pos + bytes.length > buf.length) {
+				flush();
+				if (bytes.length > buf.length) {
+					out.write(bytes);
+					count += bytes.length;
+					return;
+				}
+			}
+			System.arraycopy(bytes, 0, buf, pos, bytes.length);
+			pos += bytes.length;
+			count += bytes.length;
+		}
+
+		/** Pads the output to a multiple of 8 bytes. */
+		void pad() throws IOException {
+			while (count % 8 != 0) {
+				putByte(0);
+			}
+		}
+
+		void flush() throws IOException {
+			out.write(buf, 0, pos);
+			pos = 0;
+		}
+	}
+}
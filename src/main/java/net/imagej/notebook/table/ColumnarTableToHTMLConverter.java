@@ -0,0 +1,127 @@
+/*-
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2017 - 2018 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.notebook.table;
+
+import java.io.IOException;
+
+import net.imagej.notebook.ColumnarTable;
+import net.imagej.notebook.mime.HTMLObject;
+import net.imagej.notebook.mime.MIMEConverter;
+
+import org.apache.commons.text.StringEscapeUtils;
+import org.scijava.convert.ConvertService;
+import org.scijava.convert.Converter;
+import org.scijava.plugin.Parameter;
+import org.scijava.plugin.Plugin;
+
+/**
+ * Converter from {@link ColumnarTable} to {@link HTMLObject}.
+ * <p>
+ * Numeric cells are appended directly from their primitive columns, without
+ * boxing.
+ * </p>
+ *
+ * @author Curtis Rueden
+ */
+@Plugin(type = Converter.class)
+public class ColumnarTableToHTMLConverter extends
+	MIMEConverter<ColumnarTable, HTMLObject>
+{
+
+	@Parameter
+	private ConvertService convertService;
+
+	@Override
+	protected HTMLObject convert(final ColumnarTable table) {
+		return () -> html(table);
+	}
+
+	// -- Helper methods --
+
+	private String html(final ColumnarTable table) throws IOException {
+		final int colCount = table.getColumnCount();
+		final Class<?>[] types = new Class<?>[colCount];
+		for (int col = 0; col < colCount; col++) {
+			types[col] = table.getColumnType(col);
+		}
+
+		final StringBuilder sb = new StringBuilder();
+
+		// Begin the table.
+		sb.append("<table class =\"scijava\">");
+
+		// Add column headers.
+		sb.append("<thead><tr>");
+		for (int col = 0; col < colCount; col++) {
+			sb.append("<th>").append(escape(table.getColumnHeader(col))).append(
+				"</th>");
+		}
+		sb.append("</tr></thead>");
+
+		// Add rows.
+		sb.append("<tbody>");
+		for (int row = 0; row < table.getRowCount(); row++) {
+			sb.append("<tr>");
+			for (int col = 0; col < colCount; col++) {
+				sb.append("<td>");
+				if (table.isMissing(col, row)) {
+					// NB: Missing cells are left empty.
+				}
+				else if (types[col] == double.class) {
+					sb.append(table.getDouble(col, row));
+				}
+				else if (types[col] == long.class || types[col] == int.class) {
+					sb.append(table.getLong(col, row));
+				}
+				else sb.append(html(table.get(col, row)));
+				sb.append("</td>");
+			}
+			sb.append("</tr>");
+		}
+
+		// Terminate the table.
+		sb.append("</tbody></table>");
+
+		return sb.toString();
+	}
+
+	/** Gets an HTML string representing the given object. */
+	private String html(final Object o) throws IOException {
+		if (o == null) return "";
+		if (o instanceof String) return escape((String) o);
+		final HTMLObject htmlObj = convertService.convert(o, HTMLObject.class);
+		return htmlObj == null ? escape(o.toString()) : htmlObj.data();
+	}
+
+	private static String escape(final String text) {
+		return StringEscapeUtils.escapeHtml4(text);
+	}
+}
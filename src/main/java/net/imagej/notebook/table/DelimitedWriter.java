@@ -0,0 +1,300 @@
+/*-
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2017 - 2018 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.notebook.table;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import net.imagej.notebook.ColumnarTable;
+import net.imagej.notebook.NotebookTable;
+
+import org.scijava.table.Column;
+import org.scijava.table.Table;
+
+/**
+ * Writes tables as delimiter-separated text: CSV, TSV and the like.
+ * <p>
+ * The first line holds the column headers. Fields containing the delimiter, a
+ * double quote or a line break are quoted as per RFC 4180, and null cells are
+ * left empty.
+ * </p>
+ * <p>
+ * Rows are formatted one at a time into a single reused buffer, which is
+ * copied to the output in large chunks. Cells of primitive columns are
+ * formatted straight from their arrays, without creating a {@link String} per
+ * cell, so the memory used is constant regardless of the table's size.
+ * </p>
+ *
+ * @author Curtis Rueden
+ */
+public final class DelimitedWriter {
+
+	private static final int CHUNK_SIZE = 8192;
+
+	private DelimitedWriter() {
+		// Prevent instantiation of utility class.
+	}
+
+	/** Writes the given table to a UTF-8 encoded file. */
+	public static void write(final Table<?, ?> table, final Path path,
+		final char delimiter) throws IOException
+	{
+		try (final Writer out = Files.newBufferedWriter(path,
+			StandardCharsets.UTF_8))
+		{
+			write(table, out, delimiter);
+		}
+	}
+
+	/** Writes the given table to a UTF-8 encoded file. */
+	public static void write(final ColumnarTable table, final Path path,
+		final char delimiter) throws IOException
+	{
+		try (final Writer out = Files.newBufferedWriter(path,
+			StandardCharsets.UTF_8))
+		{
+			write(table, out, delimiter);
+		}
+	}
+
+	/** Writes the given table to a UTF-8 encoded file. */
+	public static void write(final NotebookTable table, final Path path,
+		final char delimiter) throws IOException
+	{
+		try (final Writer out = Files.newBufferedWriter(path,
+			StandardCharsets.UTF_8))
+		{
+			write(table, out, delimiter);
+		}
+	}
+
+	/**
+	 * Writes the given table. If any row has a header, the row headers are
+	 * written as an additional first column.
+	 */
+	public static void write(final Table<?, ?> table, final Writer out,
+		final char delimiter) throws IOException
+	{
+		final int rows = table.getRowCount();
+		boolean rowLabels = false;
+		for (int row = 0; row < rows; row++) {
+			if (table.getRowHeader(row) != null) { rowLabels = true; break; }
+		}
+		final int offset = rowLabels ? 1 : 0;
+		final int cols = table.getColumnCount() + offset;
+		final String[] headers = new String[cols];
+		final Cells[] cells = new Cells[cols];
+		if (rowLabels) {
+			headers[0] = "";
+			cells[0] = (sb, row) -> text(sb, table.getRowHeader(row), delimiter);
+		}
+		for (int col = offset; col < cols; col++) {
+			final Column<?> column = table.get(col - offset);
+			headers[col] = table.getColumnHeader(col - offset);
+			final Object array = ArrayTables.primitiveArray(column);
+			if (array instanceof double[]) {
+				final double[] values = (double[]) array;
+				cells[col] = (sb, row) -> sb.append(values[row]);
+			}
+			else if (array instanceof float[]) {
+				final float[] values = (float[]) array;
+				cells[col] = (sb, row) -> sb.append(values[row]);
+			}
+			else if (array instanceof long[]) {
+				final long[] values = (long[]) array;
+				cells[col] = (sb, row) -> sb.append(values[row]);
+			}
+			else if (array instanceof int[]) {
+				final int[] values = (int[]) array;
+				cells[col] = (sb, row) -> sb.append(values[row]);
+			}
+			else cells[col] = (sb, row) -> value(sb, column.get(row), delimiter);
+		}
+		write(headers, cells, rows, out, delimiter);
+	}
+
+	/** Writes the given table. */
+	public static void write(final ColumnarTable table, final Writer out,
+		final char delimiter) throws IOException
+	{
+		final int cols = table.getColumnCount();
+		final String[] headers = new String[cols];
+		final Cells[] cells = new Cells[cols];
+		for (int col = 0; col < cols; col++) {
+			headers[col] = table.getColumnHeader(col);
+			final Class<?> type = table.getColumnType(col);
+			final Object array = table.getArray(col);
+			if (type == double.class) {
+				final double[] values = (double[]) array;
+				final int c = col;
+				cells[col] = (sb, row) -> {
+					if (!table.isMissing(c, row)) sb.append(values[row]);
+				};
+			}
+			else if (type == long.class) {
+				final long[] values = (long[]) array;
+				final int c = col;
+				cells[col] = (sb, row) -> {
+					if (!table.isMissing(c, row)) sb.append(values[row]);
+				};
+			}
+			else if (type == int.class) {
+				final int[] values = (int[]) array;
+				final int c = col;
+				cells[col] = (sb, row) -> {
+					if (!table.isMissing(c, row)) sb.append(values[row]);
+				};
+			}
+			else if (type == String.class) {
+				// NB: Quote each distinct string only once.
+				final List<String> dictionary = table.getDictionary(col);
+				final String[] fields = new String[dictionary.size()];
+				for (int i = 0; i < fields.length; i++) {
+					fields[i] = text(new StringBuilder(), dictionary.get(i), delimiter)
+						.toString();
+				}
+				final int[] codes = (int[]) array;
+				cells[col] = (sb, row) -> {
+					if (codes[row] >= 0) sb.append(fields[codes[row]]);
+				};
+			}
+			else {
+				final int c = col;
+				cells[col] = (sb, row) -> value(sb, table.get(c, row), delimiter);
+			}
+		}
+		write(headers, cells, table.getRowCount(), out, delimiter);
+	}
+
+	/**
+	 * Writes the given table, with one column per distinct cell name, in order
+	 * of first appearance.
+	 */
+	public static void write(final NotebookTable table, final Writer out,
+		final char delimiter) throws IOException
+	{
+		final Set<String> names = new LinkedHashSet<>();
+		for (final Map<String, Object> row : table) {
+			names.addAll(row.keySet());
+		}
+		final String[] headers = names.toArray(new String[names.size()]);
+		final Cells[] cells = new Cells[headers.length];
+		for (int col = 0; col < headers.length; col++) {
+			final String name = headers[col];
+			cells[col] = (sb, row) -> value(sb, table.get(row).get(name), delimiter);
+		}
+		write(headers, cells, table.size(), out, delimiter);
+	}
+
+	// -- Helper methods --
+
+	private static void write(final String[] headers, final Cells[] cells,
+		final int rows, final Writer out, final char delimiter) throws IOException
+	{
+		final StringBuilder sb = new StringBuilder(2 * CHUNK_SIZE);
+		final char[] chunk = new char[CHUNK_SIZE];
+		for (int col = 0; col < headers.length; col++) {
+			if (col > 0) sb.append(delimiter);
+			text(sb, headers[col], delimiter);
+		}
+		sb.append('\n');
+		for (int row = 0; row < rows; row++) {
+			for (int col = 0; col < cells.length; col++) {
+				if (col > 0) sb.append(delimiter);
+				cells[col].append(sb, row);
+			}
+			sb.append('\n');
+			if (sb.length() >= CHUNK_SIZE) flush(sb, chunk, out);
+		}
+		flush(sb, chunk, out);
+		out.flush();
+	}
+
+	/** Moves the buffered text to the output, without creating a string. */
+	private static void flush(final StringBuilder sb, final char[] chunk,
+		final Writer out) throws IOException
+	{
+		for (int start = 0; start < sb.length(); start += chunk.length) {
+			final int end = Math.min(sb.length(), start + chunk.length);
+			sb.getChars(start, end, chunk, 0);
+			out.write(chunk, 0, end - start);
+		}
+		sb.setLength(0);
+	}
+
+	private static void value(final StringBuilder sb, final Object value,
+		final char delimiter)
+	{
+		if (value instanceof Double) sb.append(((Double) value).doubleValue());
+		else if (value instanceof Float) sb.append(((Float) value).floatValue());
+		else if (value instanceof Long) sb.append(((Long) value).longValue());
+		else if (value instanceof Integer) sb.append(((Integer) value).intValue());
+		else if (value != null) text(sb, value.toString(), delimiter);
+	}
+
+	private static StringBuilder text(final StringBuilder sb, final String text,
+		final char delimiter)
+	{
+		if (text == null) return sb;
+		boolean quote = false;
+		for (int i = 0; i < text.length(); i++) {
+			final char c = text.charAt(i);
+			if (c == delimiter || c == '"' || c == '\n' || c == '\r') {
+				quote = true;
+				break;
+			}
+		}
+		if (!quote) return sb.append(text);
+		sb.append('"');
+		for (int i = 0; i < text.length(); i++) {
+			final char c = text.charAt(i);
+			if (c == '"') sb.append('"');
+			sb.append(c);
+		}
+		return sb.append('"');
+	}
+
+	// -- Helper classes --
+
+	/** Appends the cells of one column. */
+	@FunctionalInterface
+	private interface Cells {
+
+		void append(StringBuilder sb, int row);
+	}
+}
@@ -0,0 +1,270 @@
+/*-
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2017 - 2018 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.notebook.table;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Minimal FlatBuffers encoder, sufficient for the metadata of the Arrow IPC
+ * format.
+ * <p>
+ * Objects are laid out front to back: each table is preceded by its vtable and
+ * followed by the strings, vectors and tables it references, so that all
+ * offsets point forward as FlatBuffers requires.
+ * </p>
+ *
+ * @author Curtis Rueden
+ */
+final class FlatBuffer {
+
+	private byte[] buf = new byte[256];
+	private int size;
+
+	private FlatBuffer() {
+		// NB: Use finish(Table) instead.
+	}
+
+	/**
+	 * Encodes the given root table, padded to a multiple of 8 bytes.
+	 */
+	static byte[] finish(final Table root) {
+		final FlatBuffer fb = new FlatBuffer();
+		fb.put32(0);
+		fb.set32(0, fb.writeTable(root));
+		fb.align(8);
+		return Arrays.copyOf(fb.buf, fb.size);
+	}
+
+	// -- Helper methods --
+
+	private int writeTable(final Table table) {
+		// Lay out the fields, largest first, to keep them aligned.
+		final List<Field> fields = new ArrayList<>(table.fields);
+		fields.sort((f1, f2) -> f2.size - f1.size);
+		int slots = 0, cursor = 4;
+		for (final Field f : fields) {
+			slots = Math.max(slots, f.slot + 1);
+			cursor = (cursor + f.size - 1) / f.size * f.size;
+			f.offset = cursor;
+			cursor += f.size;
+		}
+		final int tableSize = cursor;
+
+		// Write the vtable.
+		align(2);
+		final int vtable = size;
+		put16(4 + 2 * slots);
+		put16(tableSize);
+		final int[] entries = new int[slots];
+		for (final Field f : fields) {
+			entries[f.slot] = f.offset;
+		}
+		for (final int entry : entries) {
+			put16(entry);
+		}
+
+		// Write the table.
+		align(8);
+		final int start = size;
+		put32(start - vtable);
+		while (size < start + tableSize) {
+			put8(0);
+		}
+		for (final Field f : fields) {
+			final int pos = start + f.offset;
+			for (int b = 0; b < f.size; b++) {
+				buf[pos + b] = (byte) (f.value >>> 8 * b);
+			}
+		}
+
+		// Write the referenced objects.
+		for (final Field f : fields) {
+			if (f.ref == null) continue;
+			final int pos = start + f.offset;
+			set32(pos, writeObject(f.ref) - pos);
+		}
+		return start;
+	}
+
+	private int writeObject(final Object ref) {
+		if (ref instanceof Table) return writeTable((Table) ref);
+		if (ref instanceof String) return writeString((String) ref);
+		if (ref instanceof long[]) return writeStructs((long[]) ref);
+		@SuppressWarnings("unchecked")
+		final List<Table> tables = (List<Table>) ref;
+		return writeTables(tables);
+	}
+
+	private int writeString(final String s) {
+		final byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+		align(4);
+		final int start = size;
+		put32(bytes.length);
+		for (final byte b : bytes) {
+			put8(b);
+		}
+		put8(0);
+		return start;
+	}
+
+	private int writeTables(final List<Table> tables) {
+		align(4);
+		final int start = size;
+		put32(tables.size());
+		final int first = size;
+		for (int i = 0; i < tables.size(); i++) {
+			put32(0);
+		}
+		for (int i = 0; i < tables.size(); i++) {
+			final int pos = first + 4 * i;
+			set32(pos, writeTable(tables.get(i)) - pos);
+		}
+		return start;
+	}
+
+	/** Writes a vector of structs, given as their 64-bit fields. */
+	private int writeStructs(final long[] values) {
+		// NB: The elements, after the length, must be 8-byte aligned.
+		while ((size + 4) % 8 != 0) {
+			put8(0);
+		}
+		final int start = size;
+		put32(values.length / 2);
+		for (final long v : values) {
+			put32((int) v);
+			put32((int) (v >>> 32));
+		}
+		return start;
+	}
+
+	private void align(final int alignment) {
+		while (size % alignment != 0) {
+			put8(0);
+		}
+	}
+
+	private void put8(final int value) {
+		if (size == buf.length) buf = Arrays.copyOf(buf, 2 * buf.length);
+		buf[size++] = (byte) value;
+	}
+
+	private void put16(final int value) {
+		put8(value);
+		put8(value >>> 8);
+	}
+
+	private void put32(final int value) {
+		put16(value);
+		put16(value >>> 16);
+	}
+
+	private void set32(final int pos, final int value) {
+		for (int b = 0; b < 4; b++) {
+			buf[pos + b] = (byte) (value >>> 8 * b);
+		}
+	}
+
+	// -- Helper classes --
+
+	/** A FlatBuffers table under construction. */
+	static final class Table {
+
+		private final List<Field> fields = new ArrayList<>();
+
+		Table addByte(final int slot, final int value) {
+			return add(slot, 1, value, null);
+		}
+
+		Table addBool(final int slot, final boolean value) {
+			return add(slot, 1, value ? 1 : 0, null);
+		}
+
+		Table addShort(final int slot, final int value) {
+			return add(slot, 2, value, null);
+		}
+
+		Table addInt(final int slot, final int value) {
+			return add(slot, 4, value, null);
+		}
+
+		Table addLong(final int slot, final long value) {
+			return add(slot, 8, value, null);
+		}
+
+		Table addString(final int slot, final String value) {
+			return add(slot, 4, 0, value);
+		}
+
+		Table addTable(final int slot, final Table value) {
+			return add(slot, 4, 0, value);
+		}
+
+		Table addTables(final int slot, final List<Table> values) {
+			return add(slot, 4, 0, values);
+		}
+
+		/**
+		 * Adds a vector of structs with two 64-bit fields each, given as a flat
+		 * array of their fields.
+		 */
+		Table addStructs(final int slot, final long[] values) {
+			return add(slot, 4, 0, values);
+		}
+
+		private Table add(final int slot, final int size, final long value,
+			final Object ref)
+		{
+			fields.add(new Field(slot, size, value, ref));
+			return this;
+		}
+	}
+
+	private static final class Field {
+
+		private final int slot;
+		private final int size;
+		private final long value;
+		private final Object ref;
+		private int offset;
+
+		private Field(final int slot, final int size, final long value,
+			final Object ref)
+		{
+			this.slot = slot;
+			this.size = size;
+			this.value = value;
+			this.ref = ref;
+		}
+	}
+}
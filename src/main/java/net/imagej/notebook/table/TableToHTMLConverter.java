@@ -32,6 +32,7 @@ package net.imagej.notebook.table;
 
 import java.io.IOException;
 
+import net.imagej.notebook.Metrics;
 import net.imagej.notebook.mime.HTMLObject;
 import net.imagej.notebook.mime.MIMEConverter;
 
@@ -64,6 +65,9 @@ public class TableToHTMLConverter extends
 	// -- Helper methods --
 
 	private String html(final Table<?, ?> table) throws IOException {
+		final Metrics metrics = Metrics.active();
+		final long start = metrics == null ? 0 : System.nanoTime();
+
 		// Check for the presence of row and/or column headers.
 		boolean colLabels = false;
 		for (int col = 0; col < table.getColumnCount(); col++) {
@@ -108,7 +112,9 @@ public class TableToHTMLConverter extends
 		// Terminate the table.
 		sb.append("</tbody></table>");
 
-		return sb.toString();
+		final String html = sb.toString();
+		if (metrics != null) metrics.record("table.html", start, html);
+		return html;
 	}
 
 	/** Gets an HTML string representing the given object. */
@@ -0,0 +1,213 @@
+/*-
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2017 - 2018 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.notebook;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+
+import net.imagej.notebook.mime.MIMEObject;
+import net.imglib2.Cursor;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.scijava.Context;
+
+/**
+ * Tests that the hot display paths allocate no more per operation than the
+ * budgets in {@code allocation-budgets.properties}.
+ * <p>
+ * Each operation is warmed up, then measured several times on the calling
+ * thread via {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes};
+ * the smallest measurement is compared to the budget. The tests are skipped
+ * on JVMs which cannot measure allocation per thread.
+ * </p>
+ *
+ * @author Curtis Rueden
+ */
+public class AllocationBudgetTest {
+
+	private static final int WARMUP = 20;
+	private static final int RUNS = 10;
+
+	private Context context;
+	private NotebookService ns;
+
+	@Before
+	public void setUp() {
+		assumeTrue(allocatedBytes() >= 0);
+		context = new Context(NotebookService.class);
+		ns = context.service(NotebookService.class);
+	}
+
+	@After
+	public void tearDown() {
+		if (context != null) context.dispose();
+	}
+
+	@Test
+	public void testBufferedImageUnsignedByte() throws Exception {
+		final Img<UnsignedByteType> image = ArrayImgs.unsignedBytes(256, 256);
+		int i = 0;
+		for (final UnsignedByteType t : image)
+			t.set(i++ % 253);
+		assertBudget("image.bufferedImage.uint8", () -> Images.bufferedImage(
+			image));
+	}
+
+	@Test
+	public void testBufferedImageFloat() throws Exception {
+		final Img<FloatType> image = ArrayImgs.floats(256, 256, 3);
+		final Cursor<FloatType> c = image.localizingCursor();
+		while (c.hasNext()) {
+			c.fwd();
+			c.get().set(c.getFloatPosition(0) * c.getFloatPosition(2) - c
+				.getFloatPosition(1));
+		}
+		assertBudget("image.bufferedImage.float", () -> Images.bufferedImage(
+			image));
+	}
+
+	@Test
+	public void testHTML() throws Exception {
+		final BufferedImage image = new BufferedImage(256, 256,
+			BufferedImage.TYPE_INT_RGB);
+		for (int y = 0; y < 256; y++) {
+			for (int x = 0; x < 256; x++) {
+				image.setRGB(x, y, x << 16 | y << 8 | (x ^ y));
+			}
+		}
+		assertBudget("image.html", () -> Images.html(image));
+	}
+
+	@Test
+	public void testTable() throws Exception {
+		final List<Map<String, Object>> rows = new ArrayList<>();
+		for (int r = 0; r < 50; r++) {
+			final Map<String, Object> row = new LinkedHashMap<>();
+			row.put("id", r);
+			row.put("name", "cell<" + r + ">");
+			row.put("area", r * 1.5);
+			row.put("valid", r % 3 == 0);
+			rows.add(row);
+		}
+		final Object table = ns.display(rows);
+		assertBudget("table.html", () -> html(table));
+	}
+
+	@Test
+	public void testList() throws Exception {
+		final List<String> list = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			list.add("item & " + i);
+		}
+		assertBudget("list.html", () -> html(list));
+	}
+
+	// -- Helper methods --
+
+	private String html(final Object o) throws IOException {
+		return ((MIMEObject) ns.display(o)).data();
+	}
+
+	private static void assertBudget(final String key, final Callable<?> op)
+		throws Exception
+	{
+		final long budget = Long.getLong("notebook.allocation." + key, budget(
+			key));
+		for (int i = 0; i < WARMUP; i++) {
+			op.call();
+		}
+		long least = Long.MAX_VALUE;
+		for (int i = 0; i < RUNS; i++) {
+			final long before = allocatedBytes();
+			op.call();
+			least = Math.min(least, allocatedBytes() - before);
+		}
+		if (Boolean.getBoolean("notebook.allocation.report")) {
+			System.out.println(key + ": " + least + " bytes/op (budget " + budget +
+				")");
+		}
+		assertTrue(key + " allocated " + least + " bytes/op; budget is " + budget,
+			least <= budget);
+	}
+
+	/**
+	 * Gets the budget for the given key, preferring a {@code <key>.java8} entry
+	 * when running on Java 8.
+	 */
+	private static long budget(final String key) throws IOException {
+		final Properties budgets = budgets();
+		String value = null;
+		if ("1.8".equals(System.getProperty("java.specification.version"))) {
+			value = budgets.getProperty(key + ".java8");
+		}
+		if (value == null) value = budgets.getProperty(key);
+		return Long.parseLong(value.trim());
+	}
+
+	private static Properties budgets() throws IOException {
+		final Properties budgets = new Properties();
+		try (final InputStream in = AllocationBudgetTest.class.getResourceAsStream(
+			"allocation-budgets.properties"))
+		{
+			budgets.load(in);
+		}
+		return budgets;
+	}
+
+	/** Gets the bytes allocated by the current thread, or -1 if unknown. */
+	private static long allocatedBytes() {
+		final ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+		if (!(mx instanceof com.sun.management.ThreadMXBean)) return -1;
+		final com.sun.management.ThreadMXBean sun =
+			(com.sun.management.ThreadMXBean) mx;
+		if (!sun.isThreadAllocatedMemorySupported() || !sun
+			.isThreadAllocatedMemoryEnabled()) return -1;
+		return sun.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+}
@@ -0,0 +1,190 @@
+/*-
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2017 - 2018 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.notebook;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.scijava.table.GenericTable;
+
+/**
+ * Tests {@link ColumnarTable}.
+ *
+ * @author Curtis Rueden
+ */
+public class ColumnarTableTest {
+
+	@Test
+	public void testAddRow() {
+		final ColumnarTable table = new ColumnarTable();
+		table.addRow("name", "a", "count", 1, "value", 0.5);
+		table.addRow("name", "b", "count", 2);
+		table.addRow("name", "a", "value", 2.5, "extra", "x");
+
+		assertEquals(3, table.getRowCount());
+		assertEquals(4, table.getColumnCount());
+		assertEquals(String.class, table.getColumnType(0));
+		assertEquals(int.class, table.getColumnType(1));
+		assertEquals(double.class, table.getColumnType(2));
+
+		assertEquals(Arrays.asList("a", "b"), table.getDictionary(0));
+		assertEquals("a", table.get(0, 2));
+		assertEquals(2, table.getLong(1, 1));
+		assertTrue(table.isMissing(1, 2));
+		assertNull(table.get(1, 2));
+		assertTrue(table.isMissing(2, 1));
+		assertTrue(Double.isNaN(table.getDouble(2, 1)));
+		assertFalse(table.isMissing(2, 2));
+		assertEquals(2.5, table.getDouble(2, 2), 0);
+		assertNull(table.get(3, 0));
+		assertEquals("x", table.get(3, 2));
+	}
+
+	@Test
+	public void testPromotion() {
+		final ColumnarTable table = new ColumnarTable();
+		table.addRow("c", 1);
+		assertEquals(int.class, table.getColumnType(0));
+		table.addRow("c", 5000000000L);
+		assertEquals(long.class, table.getColumnType(0));
+		table.addRow("c", 0.25);
+		assertEquals(double.class, table.getColumnType(0));
+		table.addRow("c", "text");
+		assertEquals(Object.class, table.getColumnType(0));
+
+		assertEquals(1.0, table.get(0, 0));
+		assertEquals(5000000000.0, table.get(0, 1));
+		assertEquals(0.25, table.get(0, 2));
+		assertEquals("text", table.get(0, 3));
+	}
+
+	@Test
+	public void testInexactDouble() {
+		final ColumnarTable table = new ColumnarTable();
+		table.addRow("c", 0.5);
+		table.addRow("c", 1L << 53);
+		assertEquals(double.class, table.getColumnType(0));
+
+		// NB: A double would round the long, so the column holds objects.
+		table.addRow("c", Long.MAX_VALUE);
+		assertEquals(Object.class, table.getColumnType(0));
+		assertEquals(0.5, table.get(0, 0));
+		assertEquals(Long.MAX_VALUE, table.get(0, 2));
+		table.addRow("c", new BigDecimal("0.1"));
+		assertEquals(new BigDecimal("0.1"), table.get(0, 3));
+	}
+
+	@Test
+	public void testMissingValues() {
+		final ColumnarTable table = new ColumnarTable();
+		table.addRow("big", Long.MAX_VALUE);
+		table.addRow("big", null);
+		table.addRow("other", 1);
+		assertEquals(long.class, table.getColumnType(0));
+		assertEquals(int.class, table.getColumnType(1));
+		assertEquals(Long.MAX_VALUE, table.getLong(0, 0));
+		assertTrue(table.isMissing(0, 1));
+		assertTrue(table.isMissing(0, 2));
+		assertTrue(table.isMissing(1, 0));
+		assertEquals(1, table.getLong(1, 2));
+
+		// NB: A double must not round the existing long values.
+		table.addRow("big", 0.5);
+		assertEquals(Object.class, table.getColumnType(0));
+		assertEquals(Long.MAX_VALUE, table.get(0, 0));
+		assertNull(table.get(0, 1));
+		assertEquals(0.5, table.get(0, 3));
+
+		// NB: Missing cells survive the conversion to a SciJava table.
+		final ColumnarTable copy = ColumnarTable.fromTable(table.toTable());
+		assertEquals(int.class, copy.getColumnType(1));
+		assertTrue(copy.isMissing(1, 0));
+		assertEquals(1, copy.getLong(1, 2));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testMissingLong() {
+		final ColumnarTable table = new ColumnarTable();
+		table.addRow("a", 1L);
+		table.addRow("b", 2L);
+		table.getLong(0, 1);
+	}
+
+	@Test
+	public void testSparseColumns() {
+		final ColumnarTable table = new ColumnarTable();
+		final int rows = 100000;
+		for (int row = 0; row < rows; row++) {
+			table.addRow("col" + row % 100, row);
+		}
+		assertEquals(rows, table.getRowCount());
+		assertEquals(100, table.getColumnCount());
+		assertEquals(int.class, table.getColumnType(7));
+		assertEquals(rows - 93, table.getLong(7, rows - 93));
+		assertTrue(table.isMissing(7, rows - 92));
+		assertTrue(((int[]) table.getArray(7)).length < 2 * rows);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDuplicateColumn() {
+		new ColumnarTable().addRow("a", 1, "a", 2);
+	}
+
+	@Test
+	public void testTableConversion() {
+		final ColumnarTable table = new ColumnarTable();
+		table.addColumn("d", new double[] { 1.5, 2.5, 3.5 });
+		table.addColumn("l", new long[] { 10, 20, 30 });
+		table.addRow("d", 4.5, "l", 40L, "s", "four");
+
+		final GenericTable generic = table.toTable();
+		assertEquals(4, generic.getRowCount());
+		assertEquals(3, generic.getColumnCount());
+		assertEquals(3.5, generic.get(0, 2));
+		assertEquals(40L, generic.get(1, 3));
+		assertEquals("four", generic.get(2, 3));
+
+		final ColumnarTable copy = ColumnarTable.fromTable(generic);
+		assertEquals(4, copy.getRowCount());
+		assertEquals(double.class, copy.getColumnType(0));
+		assertEquals(long.class, copy.getColumnType(1));
+		assertEquals(String.class, copy.getColumnType(2));
+		assertEquals(4.5, copy.getDouble(0, 3), 0);
+		assertNull(copy.get(2, 0));
+		assertEquals("four", copy.get(2, 3));
+	}
+}
@@ -0,0 +1,327 @@
+/*-
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2017 - 2018 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.notebook;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+
+import jupyter.Displayers;
+
+import net.imagej.notebook.mime.MIMEObject;
+import net.imglib2.Cursor;
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.real.FloatType;
+
+import org.scijava.Context;
+
+/**
+ * A load test of the {@link NotebookService}, which calls {@code display},
+ * {@code mosaic}, {@code methods} and table conversions from several threads
+ * at once against one {@link Context}, as kernels and multi-user servers do.
+ * <p>
+ * Each operation is first run on a single thread, and every concurrent result
+ * is compared against that output, so races show up as mismatches. The
+ * report gives throughput, latency percentiles and allocation rates per
+ * operation, plus the time workers spent blocked on monitors, which reveals
+ * contention (e.g., around converter lookups or the BeakerX displayer
+ * registry).
+ * </p>
+ * <p>
+ * Usage: {@code NotebookServiceStress [threads] [iterations per thread]}
+ * </p>
+ *
+ * @author Curtis Rueden
+ */
+public class NotebookServiceStress {
+
+	private final NotebookService ns;
+	private final Map<String, Callable<String>> operations =
+		new LinkedHashMap<>();
+
+	public NotebookServiceStress(final Context context) {
+		ns = context.service(NotebookService.class);
+
+		final Img<UnsignedByteType> bytes = ArrayImgs.unsignedBytes(160, 120, 3);
+		int i = 0;
+		for (final UnsignedByteType t : bytes)
+			t.set(i++ % 251);
+		final Img<FloatType> floats = ArrayImgs.floats(128, 128);
+		final Cursor<FloatType> c = floats.localizingCursor();
+		while (c.hasNext()) {
+			c.fwd();
+			c.get().set((float) Math.sin(c.getDoublePosition(0) / 9) * c
+				.getFloatPosition(1));
+		}
+		final List<Map<String, Object>> rows = new ArrayList<>();
+		for (int r = 0; r < 200; r++) {
+			final Map<String, Object> row = new LinkedHashMap<>();
+			row.put("id", r);
+			row.put("name", "cell<" + r + ">");
+			row.put("area", r * 1.5);
+			row.put("valid", r % 3 == 0);
+			rows.add(row);
+		}
+
+		operations.put("display uint8", () -> html(ns.display(bytes)));
+		operations.put("display float", () -> html(ns.display(floats)));
+		operations.put("mosaic", () -> html(ns.display(mosaic(bytes))));
+		operations.put("methods", () -> ns.methods(String.class).toString());
+		operations.put("table", () -> html(ns.display(rows)));
+		operations.put("arrow", () -> ns.arrow(ns.display(rows)).data());
+		try {
+			final Object table = ns.display(rows);
+			Displayers.display(table);
+			operations.put("displayer", () -> String.valueOf(Displayers.display(
+				table)));
+		}
+		catch (final NoClassDefFoundError exc) {
+			// NB: jvm-repr is not available; skip the displayer registry.
+		}
+	}
+
+	public static void main(final String[] args) throws Exception {
+		final int threads = args.length > 0 ? Integer.parseInt(args[0]) : //
+			2 * Runtime.getRuntime().availableProcessors();
+		final int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+		final Context context = new Context(NotebookService.class);
+		try {
+			System.out.println(new NotebookServiceStress(context).run(threads,
+				iterations));
+		}
+		finally {
+			context.dispose();
+		}
+	}
+
+	/**
+	 * Runs the operations round-robin on the given number of threads, each
+	 * thread starting at a different operation.
+	 *
+	 * @param threads Number of threads calling the service at once.
+	 * @param iterations Number of operations each thread performs.
+	 * @return the measurements and failures.
+	 */
+	public Report run(final int threads, final int iterations)
+		throws Exception
+	{
+		final String[] names = operations.keySet().toArray(new String[0]);
+		final String[] expected = new String[names.length];
+		for (int op = 0; op < names.length; op++) {
+			expected[op] = operations.get(names[op]).call();
+		}
+
+		final ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+		if (mx.isThreadContentionMonitoringSupported()) {
+			mx.setThreadContentionMonitoringEnabled(true);
+		}
+		final Report report = new Report(names, threads, iterations);
+		final CountDownLatch start = new CountDownLatch(1);
+		final Thread[] workers = new Thread[threads];
+		for (int t = 0; t < threads; t++) {
+			final int offset = t;
+			workers[t] = new Thread(() -> {
+				final long id = Thread.currentThread().getId();
+				try {
+					start.await();
+				}
+				catch (final InterruptedException exc) {
+					return;
+				}
+				final long allocated = allocatedBytes(mx, id);
+				final ThreadInfo before = mx.getThreadInfo(id);
+				final long[] nanos = report.nanos[offset];
+				for (int i = 0; i < iterations; i++) {
+					final int op = (i + offset) % names.length;
+					final long begin = System.nanoTime();
+					try {
+						final String result = operations.get(names[op]).call();
+						if (!expected[op].equals(result)) report.mismatch(op);
+					}
+					catch (final Throwable exc) {
+						report.error(op, exc);
+					}
+					nanos[i] = System.nanoTime() - begin;
+				}
+				final ThreadInfo after = mx.getThreadInfo(id);
+				report.thread(allocatedBytes(mx, id) - allocated, //
+					after.getBlockedCount() - before.getBlockedCount(), //
+					after.getBlockedTime() - before.getBlockedTime());
+			}, "notebook-stress-" + t);
+			workers[t].start();
+		}
+		final long begin = System.nanoTime();
+		start.countDown();
+		for (final Thread worker : workers)
+			worker.join();
+		report.elapsed = System.nanoTime() - begin;
+		return report;
+	}
+
+	// -- Helper methods --
+
+	/** Converts the given object to HTML, as the notebook would. */
+	private String html(final Object o) throws Exception {
+		final Object displayed = ns.display(o);
+		if (displayed instanceof MIMEObject) return ((MIMEObject) displayed).data();
+		return String.valueOf(displayed);
+	}
+
+	@SuppressWarnings("unchecked")
+	private RandomAccessibleInterval<UnsignedByteType> mosaic(
+		final Img<UnsignedByteType> image)
+	{
+		return ns.mosaic(new int[] { 2 }, image, image);
+	}
+
+	/** Gets the bytes allocated by the given thread, or -1 if unknown. */
+	private static long allocatedBytes(final ThreadMXBean mx, final long id) {
+		if (!(mx instanceof com.sun.management.ThreadMXBean)) return -1;
+		return ((com.sun.management.ThreadMXBean) mx).getThreadAllocatedBytes(id);
+	}
+
+	// -- Helper classes --
+
+	/** The outcome of a {@link NotebookServiceStress#run} call. */
+	public static class Report {
+
+		private final String[] names;
+		private final int iterations;
+		private final long[][] nanos;
+		private final int[] errors, mismatches;
+		private final List<Throwable> failures = new ArrayList<>();
+		private long allocated, blockedCount, blockedMillis;
+		private long elapsed;
+
+		private Report(final String[] names, final int threads,
+			final int iterations)
+		{
+			this.names = names;
+			this.iterations = iterations;
+			nanos = new long[threads][iterations];
+			errors = new int[names.length];
+			mismatches = new int[names.length];
+		}
+
+		/** Gets the number of operations which threw an exception. */
+		public synchronized int errors() {
+			return Arrays.stream(errors).sum();
+		}
+
+		/** Gets the number of operations whose result differed from serial. */
+		public synchronized int mismatches() {
+			return Arrays.stream(mismatches).sum();
+		}
+
+		/** Gets the exceptions thrown by failed operations. */
+		public synchronized List<Throwable> failures() {
+			return new ArrayList<>(failures);
+		}
+
+		/** Gets the number of operations completed per second. */
+		public double throughput() {
+			return nanos.length * iterations / (elapsed / 1e9);
+		}
+
+		@Override
+		public synchronized String toString() {
+			final StringBuilder sb = new StringBuilder();
+			final double seconds = elapsed / 1e9;
+			final int ops = nanos.length * iterations;
+			sb.append(String.format("%d threads, %d operations in %.2f s: " +
+				"%.1f ops/s%n", nanos.length, ops, seconds, throughput()));
+			if (allocated >= 0) {
+				sb.append(String.format("allocated %.1f MB/s, %.1f KB/op%n",
+					allocated / 1e6 / seconds, allocated / 1e3 / ops));
+			}
+			sb.append(String.format("blocked %d times, %d ms total%n", blockedCount,
+				blockedMillis));
+			sb.append(String.format("%-16s %7s %6s %6s %9s %9s %9s %9s%n",
+				"operation", "count", "errors", "races", "p50 ms", "p90 ms", "p99 ms",
+				"max ms"));
+			for (int op = 0; op < names.length; op++) {
+				final long[] latencies = latencies(op);
+				sb.append(String.format("%-16s %7d %6d %6d %9.2f %9.2f %9.2f %9.2f%n",
+					names[op], latencies.length, errors[op], mismatches[op],
+					percentile(latencies, 0.5), percentile(latencies, 0.9),
+					percentile(latencies, 0.99), percentile(latencies, 1)));
+			}
+			for (final Throwable t : failures) {
+				sb.append(t).append(System.lineSeparator());
+			}
+			return sb.toString();
+		}
+
+		private synchronized void error(final int op, final Throwable t) {
+			errors[op]++;
+			if (failures.size() < 10) failures.add(t);
+		}
+
+		private synchronized void mismatch(final int op) {
+			mismatches[op]++;
+		}
+
+		private synchronized void thread(final long bytes, final long blocked,
+			final long blockedTime)
+		{
+			allocated = bytes < 0 || allocated < 0 ? -1 : allocated + bytes;
+			blockedCount += blocked;
+			if (blockedTime > 0) blockedMillis += blockedTime;
+		}
+
+		/** Gets the sorted latencies of the given operation, across threads. */
+		private long[] latencies(final int op) {
+			final List<Long> list = new ArrayList<>();
+			for (int t = 0; t < nanos.length; t++) {
+				for (int i = 0; i < iterations; i++) {
+					if ((i + t) % names.length == op) list.add(nanos[t][i]);
+				}
+			}
+			return list.stream().mapToLong(Long::longValue).sorted().toArray();
+		}
+
+		private static double percentile(final long[] sorted, final double p) {
+			if (sorted.length == 0) return 0;
+			final int index = (int) Math.ceil(p * sorted.length) - 1;
+			return sorted[Math.max(0, index)] / 1e6;
+		}
+	}
+}
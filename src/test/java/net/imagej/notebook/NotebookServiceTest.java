@@ -30,27 +30,70 @@
 
 package net.imagej.notebook;
 
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
 import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import jupyter.Displayers;
 
 import net.imagej.Dataset;
 import net.imagej.DatasetService;
 import net.imagej.autoscale.AutoscaleService;
 import net.imagej.display.DatasetView;
+import net.imagej.notebook.image.DownscaledImage;
+import net.imagej.notebook.mime.ArrowObject;
+import net.imagej.notebook.mime.HTMLObject;
+import net.imagej.notebook.mime.MIMEObject;
+import net.imagej.notebook.table.ArrayTables;
+import net.imagej.notebook.table.DelimitedWriter;
 import net.imglib2.Cursor;
+import net.imglib2.FinalInterval;
+import net.imglib2.RandomAccess;
 import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.converter.Converter;
+import net.imglib2.converter.RealLUTConverter;
+import net.imglib2.display.projector.composite.CompositeXYProjector;
+import net.imglib2.display.screenimage.awt.ARGBScreenImage;
 import net.imglib2.img.array.ArrayImg;
 import net.imglib2.img.array.ArrayImgs;
 import net.imglib2.img.basictypeaccess.array.ByteArray;
+import net.imglib2.img.basictypeaccess.array.IntArray;
+import net.imglib2.img.basictypeaccess.array.ShortArray;
+import net.imglib2.type.numeric.ARGBType;
 import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
 
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import org.scijava.Context;
+import org.scijava.convert.AbstractConverter;
+import org.scijava.plugin.Plugin;
+import org.scijava.table.DefaultGenericTable;
+import org.scijava.table.GenericTable;
 
 /**
  * Tests {@link NotebookService}.
@@ -75,6 +118,24 @@ public class NotebookServiceTest {
 		context.dispose();
 	}
 
+	/**
+	 * Tests that creating a context with a {@link NotebookService} stays fast,
+	 * and creates no converter plugins. The threshold in milliseconds can be
+	 * overridden via the {@code notebook.startup.threshold} system property.
+	 */
+	@Test
+	public void testStartupTime() {
+		final long threshold = Long.getLong("notebook.startup.threshold", 3000);
+		final int converters = StartupProbeConverter.CREATED.get();
+		final long start = System.currentTimeMillis();
+		final Context ctx = new Context(NotebookService.class);
+		final long elapsed = System.currentTimeMillis() - start;
+		final int created = StartupProbeConverter.CREATED.get() - converters;
+		ctx.dispose();
+		assertTrue("Startup took " + elapsed + " ms", elapsed <= threshold);
+		assertEquals("Converters created at startup", 0, created);
+	}
+
 	/** Tests {@link NotebookService#display(Dataset)}. */
 	@Test
 	public void testDisplayDataset() {
@@ -138,6 +199,63 @@ public class NotebookServiceTest {
 		assertSameImageDetails(expected, rendered);
 	}
 	
+	/** Tests {@link NotebookService#displayStack(RandomAccessibleInterval, int)}. */
+	@Test
+	public void testDisplayStack() throws IOException {
+		final int w = 20, h = 10, d = 4;
+		final byte[] data = new byte[w * h * d];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (i / (w * h) * 50);
+		}
+		final ArrayImg<UnsignedByteType, ByteArray> img = //
+			ArrayImgs.unsignedBytes(data, w, h, d);
+
+		final BufferedImage sheet = Images.spriteSheet(img, 0, 1, -1, 2,
+			new double[] { 0 }, new double[] { 255 });
+		assertEquals(w, sheet.getWidth());
+		assertEquals(h * d, sheet.getHeight());
+		for (int z = 0; z < d; z++) {
+			assertEquals(z * 50, sheet.getRGB(w / 2, z * h + h / 2) & 0xff);
+		}
+
+		final Object rendered = ns.displayStack(img, 2);
+		assertTrue(rendered instanceof HTMLObject);
+		final String html = ((HTMLObject) rendered).data();
+		assertTrue(html.contains("max=\"" + (d - 1) + "\""));
+	}
+
+	/** Tests that tall stacks are laid out in columns of planes. */
+	@Test
+	public void testSpriteSheetColumns() throws IOException {
+		final int w = 3, h = Images.MAX_SHEET_SIZE / 2 + 1, d = 3;
+		final byte[] data = new byte[w * h * d];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (byte) (i / (w * h) * 50);
+		}
+		final ArrayImg<UnsignedByteType, ByteArray> img = //
+			ArrayImgs.unsignedBytes(data, w, h, d);
+
+		// NB: Only one plane fits into the height of a sheet.
+		final BufferedImage sheet = Images.spriteSheet(img, 0, 1, -1, 2,
+			new double[] { 0 }, new double[] { 255 });
+		assertEquals(w * d, sheet.getWidth());
+		assertEquals(h, sheet.getHeight());
+		for (int z = 0; z < d; z++) {
+			assertEquals(z * 50, sheet.getRGB(z * w + 1, h / 2) & 0xff);
+		}
+		final String html = Images.stackHTML(sheet, w, h, d, null);
+		assertTrue(html.contains("marginLeft"));
+
+		try {
+			Images.spriteSheet(ArrayImgs.unsignedBytes(1, Images.MAX_SHEET_SIZE + 1,
+				2), 0, 1, -1, 2, new double[] { 0 }, new double[] { 255 });
+			fail("Expected IllegalArgumentException");
+		}
+		catch (final IllegalArgumentException exc) {
+			// NB: Expected.
+		}
+	}
+
 	@Test
 	public void testViewImg() {
 		final ArrayImg<UnsignedByteType, ByteArray> img = createTestImg();
@@ -146,6 +264,470 @@ public class NotebookServiceTest {
 		assertSameImageDetails(img, dataset.getScreenImage().image());
 	}
 
+	@Test
+	public void testImageView() {
+		final ArrayImg<UnsignedByteType, ByteArray> img = createTestImg();
+		final ImageView<?> view = ns.imageView(img);
+		assertEquals(1, view.getChannelCount());
+		assertSameImageDetails(img, view.bufferedImage());
+	}
+
+	@Test
+	public void testRendererReuse() {
+		final ArrayImg<UnsignedByteType, ByteArray> img = createTestImg();
+		final double[] min = { 0 }, max = { 255 };
+		final Renderer<UnsignedByteType> renderer = new Renderer<>();
+		final BufferedImage first = //
+			renderer.render(img, 0, 1, -1, min, max, null);
+		assertSameImageDetails(img, first);
+
+		// Same dimensions: the target buffer is re-mapped in place.
+		img.firstElement().set(99);
+		final BufferedImage second = //
+			renderer.render(img, 0, 1, -1, min, max, null);
+		assertTrue(first == second);
+		assertSameImageDetails(img, second);
+
+		// New dimensions: the target buffer is reallocated.
+		final ArrayImg<UnsignedByteType, ByteArray> small = //
+			ArrayImgs.unsignedBytes(new byte[4], 2, 2);
+		final BufferedImage third = //
+			renderer.render(small, 0, 1, -1, min, max, null);
+		assertEquals(2, third.getWidth());
+	}
+
+	@Test
+	public void testRendererFastPath() {
+		final int w = 13, h = 7, c = 2;
+		final short[] data = new short[w * h * c];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = (short) (i * 997);
+		}
+		final ArrayImg<UnsignedShortType, ShortArray> img = //
+			ArrayImgs.unsignedShorts(data, w, h, c);
+		final double[] min = { 100, 5000 }, max = { 40000, 60000 };
+
+		// NB: The raw array fast path, and the specialized loops which views
+		// take instead (see RenderLoops), both match the CompositeXYProjector.
+		final ARGBScreenImage expected = new ARGBScreenImage(w, h);
+		final ArrayList<Converter<UnsignedShortType, ARGBType>> converters =
+			new ArrayList<>();
+		for (int i = 0; i < c; i++) {
+			converters.add(new RealLUTConverter<>(min[i], max[i], //
+				Images.defaultColorTable(i, c)));
+		}
+		final CompositeXYProjector<UnsignedShortType> projector =
+			new CompositeXYProjector<>(img, expected, converters, 2);
+		projector.setComposite(true);
+		projector.map();
+		final BufferedImage fast = new Renderer<UnsignedShortType>().render(img, 0,
+			1, 2, min, max, null);
+		final BufferedImage general = new Renderer<UnsignedShortType>().render(
+			Views.interval(img, img), 0, 1, 2, min, max, null);
+		for (int y = 0; y < h; y++) {
+			for (int x = 0; x < w; x++) {
+				final int argb = expected.image().getRGB(x, y);
+				assertEquals(argb, fast.getRGB(x, y));
+				assertEquals(argb, general.getRGB(x, y));
+			}
+		}
+	}
+
+	@Test
+	public void testRendererIndexed() {
+		final ArrayImg<UnsignedByteType, ByteArray> img = createTestImg();
+		final double[] min = { 10 }, max = { 200 };
+		final BufferedImage actual = new Renderer<UnsignedByteType>().render(img,
+			0, 1, -1, min, max, null);
+		assertEquals(BufferedImage.TYPE_BYTE_INDEXED, actual.getType());
+
+		// NB: Both the fast and the general path match the ARGB rendering.
+		final BufferedImage general = new Renderer<UnsignedByteType>().render(
+			Views.interval(img, img), 0, 1, -1, min, max, null);
+		final ARGBScreenImage expected = new Renderer<UnsignedByteType>().map(img,
+			0, 1, -1, min, max, null);
+		for (int y = 0; y < actual.getHeight(); y++) {
+			for (int x = 0; x < actual.getWidth(); x++) {
+				final int argb = expected.image().getRGB(x, y);
+				assertEquals(argb, actual.getRGB(x, y));
+				assertEquals(argb, general.getRGB(x, y));
+			}
+		}
+	}
+
+	@Test
+	public void testRenderLoops() {
+		final ArrayImg<FloatType, ?> img = ArrayImgs.floats(37, 23, 3);
+		final Cursor<FloatType> c = img.localizingCursor();
+		while (c.hasNext()) {
+			c.fwd();
+			c.get().set(c.getFloatPosition(0) * (c.getFloatPosition(2) + 1) - c
+				.getFloatPosition(1));
+		}
+		final double[] min = { -20, 0, 5 }, max = { 40, 100, 60 };
+
+		// NB: The specialized loops match the CompositeXYProjector.
+		final ARGBScreenImage expected = new ARGBScreenImage(37, 23);
+		final ArrayList<Converter<FloatType, ARGBType>> converters =
+			new ArrayList<>();
+		for (int i = 0; i < 3; i++) {
+			converters.add(new RealLUTConverter<>(min[i], max[i], //
+				Images.defaultColorTable(i, 3)));
+		}
+		final CompositeXYProjector<FloatType> projector =
+			new CompositeXYProjector<>(img, expected, converters, 2);
+		projector.setComposite(true);
+		projector.map();
+		final ARGBScreenImage actual = new Renderer<FloatType>().map(img, 0, 1, 2,
+			min, max, null);
+		assertArrayEquals(expected.getData(), actual.getData());
+
+		// NB: Each cursor and pixel type gets its own copy of the loop.
+		final Cursor<FloatType> floats = img.cursor();
+		final Cursor<UnsignedByteType> bytes = createTestImg().cursor();
+		final RenderLoops.Loop loop = RenderLoops.get(floats, new FloatType());
+		assertTrue(loop == RenderLoops.get(floats, new FloatType()));
+		assertTrue(loop != RenderLoops.get(bytes, new UnsignedByteType()));
+	}
+
+	@Test
+	public void testDisplayAdjustable() throws IOException {
+		final ArrayImg<UnsignedByteType, ByteArray> img = createTestImg();
+		final String html = ((HTMLObject) ns.displayAdjustable(img)).data();
+		assertTrue(html.contains("<canvas width=\"20\" height=\"20\">"));
+		// NB: uint8 is a narrow type, so the initial range is the full range.
+		assertTrue(html.contains("class=\"min\" value=\"0.0\""));
+		assertTrue(html.contains("class=\"max\" value=\"255.0\""));
+	}
+
+	@Test
+	public void testWrap() throws IOException {
+		final BufferedImage gray = new BufferedImage(5, 3,
+			BufferedImage.TYPE_BYTE_GRAY);
+		gray.getRaster().setSample(4, 2, 0, 77);
+		final ArrayImg<?, ?> wrapped = Images.wrap(gray);
+		assertTrue(wrapped.firstElement() instanceof UnsignedByteType);
+		final RandomAccess<?> ra = wrapped.randomAccess();
+		ra.setPosition(new long[] { 4, 2 });
+		assertEquals(77, ((UnsignedByteType) ra.get()).get());
+
+		// The image shares its pixels with the BufferedImage.
+		((UnsignedByteType) ra.get()).set(12);
+		assertEquals(12, gray.getRaster().getSample(4, 2, 0));
+
+		// Decoding yields the same pixels.
+		final ArrayImg<?, ?> decoded = Images.decodeImg(ByteBuffer.wrap(Images
+			.encode(gray)));
+		final RandomAccess<?> dra = decoded.randomAccess();
+		dra.setPosition(new long[] { 4, 2 });
+		assertEquals(12, ((UnsignedByteType) dra.get()).get());
+	}
+
+	@Test
+	public void testARGBImage() {
+		final int[] data = new int[2 * 3 * 2];
+		for (int i = 0; i < data.length; i++) {
+			data[i] = 0x10000000 * i + 0x00102030 * (i + 1);
+		}
+		final ArrayImg<ARGBType, IntArray> img = ArrayImgs.argbs(data, 2, 3, 2);
+		final long[] pos = { 0, 0, 1 };
+		final BufferedImage direct = Images.argbImage(img, pos);
+		final BufferedImage copied = Images.argbImage(Views.interval(img, img),
+			pos);
+		for (int y = 0; y < 3; y++) {
+			for (int x = 0; x < 2; x++) {
+				final int expected = 0xff000000 | data[6 + 2 * y + x];
+				assertEquals(expected, direct.getRGB(x, y));
+				assertEquals(expected, copied.getRGB(x, y));
+			}
+		}
+	}
+
+	@Test
+	public void testDownscale() {
+		final BufferedImage image = new BufferedImage(3000, 1000,
+			BufferedImage.TYPE_INT_RGB);
+		final Object rendered = ns.display(image);
+		assertTrue(rendered instanceof DownscaledImage);
+		final DownscaledImage downscaled = (DownscaledImage) rendered;
+		assertTrue(downscaled.getOriginal() == image);
+		assertEquals(1024, downscaled.getImage().getWidth());
+		assertEquals(341, downscaled.getImage().getHeight());
+		assertEquals(BufferedImage.TYPE_INT_RGB, downscaled.getImage().getType());
+		assertTrue(Images.downscale(image, 3000) == image);
+
+		// NB: Grayscale images stay grayscale, with their samples averaged.
+		final BufferedImage gray = new BufferedImage(1000, 500,
+			BufferedImage.TYPE_BYTE_GRAY);
+		final WritableRaster raster = gray.getRaster();
+		for (int y = 0; y < 500; y++) {
+			for (int x = 0; x < 1000; x++) {
+				raster.setSample(x, y, 0, x % 2 == 0 ? 100 : 200);
+			}
+		}
+		ns.displaySettings().setMaxImageDimension(250);
+		final BufferedImage shrunken = //
+			((DownscaledImage) ns.display(gray)).getImage();
+		assertEquals(BufferedImage.TYPE_BYTE_GRAY, shrunken.getType());
+		assertEquals(250, shrunken.getWidth());
+		assertEquals(150, shrunken.getRaster().getSample(10, 10, 0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testDownscaleInvalid() {
+		Images.downscale(new BufferedImage(2, 2, BufferedImage.TYPE_INT_RGB), 0);
+	}
+
+	@Test
+	public void testMetrics() throws IOException {
+		final Metrics metrics = ns.metrics();
+		final Object list = ns.display(Arrays.asList(1, 2, "\u00e9"));
+		Displayers.display(list);
+		assertTrue("disabled by default", metrics.table().isEmpty());
+
+		metrics.setEnabled(true);
+		ns.display(Arrays.asList(4, 5, 6));
+		final String html = ((MIMEObject) list).data();
+		Displayers.display(list);
+		Displayers.display(list);
+		final NotebookTable table = metrics.table();
+		final LinkedHashMap<String, Object> row = table.stream().filter(
+			r -> "list.html".equals(r.get("stage"))).findFirst().get();
+		// NB: Only renderings for the notebook are attributed to the service.
+		assertEquals(2L, row.get("count"));
+		final long bytes = html.getBytes(StandardCharsets.UTF_8).length;
+		assertEquals(2 * bytes, row.get("bytes"));
+		assertTrue(table.stream().anyMatch(r -> "mime.resolve".equals(r.get(
+			"stage"))));
+
+		final Context other = new Context(NotebookService.class);
+		try {
+			assertTrue("per service", other.service(NotebookService.class)
+				.metrics().table().isEmpty());
+		}
+		finally {
+			other.dispose();
+		}
+	}
+
+	/**
+	 * Tests that concurrent display calls against one context neither fail nor
+	 * produce different results than serial calls. See
+	 * {@link NotebookServiceStress} for a longer run with a full report.
+	 */
+	@Test
+	public void testConcurrentDisplay() throws Exception {
+		final NotebookServiceStress.Report report = //
+			new NotebookServiceStress(context).run(4, 25);
+		assertEquals(report.toString(), 0, report.errors());
+		assertEquals(report.toString(), 0, report.mismatches());
+	}
+
+	@Test
+	public void testExecution() {
+		final Execution execution = Execution.forkJoin(4).withParallelism(2);
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger peak = new AtomicInteger();
+		final AtomicIntegerArray calls = new AtomicIntegerArray(100);
+		execution.forEach(100, i -> {
+			peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+			calls.incrementAndGet(i);
+			running.decrementAndGet();
+		});
+		assertTrue(peak.get() <= 2);
+		for (int i = 0; i < 100; i++) {
+			assertEquals(1, calls.get(i));
+		}
+
+		final Execution previous = ns.execution();
+		try {
+			ns.setExecution(execution);
+			assertTrue(ns.execution() == execution);
+		}
+		finally {
+			ns.setExecution(previous);
+		}
+
+		// NB: A disposed service closes and lets go of its backend.
+		final Context other = new Context(NotebookService.class);
+		final NotebookService otherService = other.service(NotebookService.class);
+		otherService.setExecution(execution);
+		assertTrue(ns.execution() != execution);
+		other.dispose();
+		assertTrue(otherService.execution() != execution);
+		try {
+			execution.execute(() -> {});
+			fail("Expected RejectedExecutionException");
+		}
+		catch (final RejectedExecutionException exc) {
+			// NB: Expected.
+		}
+
+		try {
+			execution.forEach(10, i -> {
+				if (i == 5) throw new IllegalStateException("plane " + i);
+			});
+			fail("Expected IllegalStateException");
+		}
+		catch (final IllegalStateException exc) {
+			assertEquals("plane 5", exc.getMessage());
+		}
+	}
+
+	@Test
+	public void testDisplayLive() throws Exception {
+		final int w = 300, h = 270;
+		final ArrayImg<UnsignedByteType, ByteArray> img = //
+			ArrayImgs.unsignedBytes(w, h);
+		final String html = ns.displayLive(img, 0, 255).data();
+		assertEquals(4, html.split("<img ").length - 1);
+
+		// NB: Each tile is pushed once initially, then only when it changes.
+		final List<String> pushed = Collections.synchronizedList(
+			new ArrayList<>());
+		final CountDownLatch updated = new CountDownLatch(5);
+		final LiveDisplay<UnsignedByteType> live = new LiveDisplay<>(img, 0, 1, -1,
+			new double[] { 0 }, new double[] { 255 }, (tx, ty, tile) -> {
+				pushed.add(tx + "," + ty);
+				updated.countDown();
+			});
+		assertEquals("", live.data());
+		assertEquals(Arrays.asList("0,0", "1,0", "0,1", "1,1"), pushed);
+
+		// Change a pixel in the last tile only.
+		final RandomAccess<UnsignedByteType> ra = img.randomAccess();
+		ra.setPosition(new long[] { w - 1, h - 1 });
+		ra.get().set(255);
+		live.refresh(new FinalInterval(new long[] { 0, 0 }, new long[] { w - 1,
+			h - 1 }));
+		assertTrue(updated.await(10, TimeUnit.SECONDS));
+		assertEquals(Arrays.asList("0,0", "1,0", "0,1", "1,1", "1,1"), pushed);
+	}
+
+	/** Tests that array and image tables are views of the data. */
+	@Test
+	public void testArrayTables() {
+		final double[] values = { 1.5, 2.5, 3.5 };
+		final GenericTable table = ArrayTables.wrap(values, "v");
+		assertEquals(1, table.getColumnCount());
+		assertEquals(3, table.getRowCount());
+		assertEquals("v", table.getColumnHeader(0));
+		assertEquals(Double.class, table.get(0).getType());
+		values[1] = 7;
+		assertEquals(7.0, table.get(0, 1));
+
+		// NB: Resizing is rejected before the table or the data changes.
+		try {
+			table.removeRow(0);
+			fail("Expected UnsupportedOperationException");
+		}
+		catch (final UnsupportedOperationException exc) {
+			// NB: Expected.
+		}
+		assertEquals(3, table.getRowCount());
+		assertEquals(1.5, values[0], 0);
+
+		final ArrayImg<UnsignedByteType, ByteArray> img = ArrayImgs.unsignedBytes(
+			new byte[] { 1, 2, 3, 4, 5, 6 }, 3, 2);
+		final GenericTable imgTable = ArrayTables.wrap(img);
+		assertEquals(3, imgTable.getColumnCount());
+		assertEquals(2, imgTable.getRowCount());
+		assertEquals(6.0, imgTable.get(2, 1));
+		assertEquals(4.0, imgTable.get(0, 1));
+		imgTable.set(1, 0, 9.0);
+		final RandomAccess<UnsignedByteType> access = img.randomAccess();
+		access.setPosition(new long[] { 1, 0 });
+		assertEquals(9, access.get().get());
+
+		// NB: Columns of a translated image start at its minimum.
+		final GenericTable shifted = ArrayTables.wrap(Views.translate(img, 5, 7));
+		assertEquals(9.0, shifted.get(1, 0));
+		assertEquals(6.0, shifted.get(2, 1));
+	}
+
+	/** Tests {@link NotebookService#arrow(Object)}. */
+	@Test
+	public void testArrow() throws IOException {
+		final NotebookTable table = new NotebookTable();
+		table.addRow("name", "a", "value", 1.5);
+		table.addRow("name", "b", "value", null);
+		final ArrowObject arrow = ns.arrow(table);
+		assertEquals("application/vnd.apache.arrow.stream", arrow.mimeType());
+
+		final byte[] bytes = Base64.getDecoder().decode(arrow.data());
+		assertEquals(0, bytes.length % 8);
+		final ByteBuffer buffer = ByteBuffer.wrap(bytes).order(
+			ByteOrder.LITTLE_ENDIAN);
+		// Each message begins with a continuation marker and ends with padding.
+		assertEquals(0xFFFFFFFF, buffer.getInt(0));
+		assertEquals(0, buffer.getInt(4) % 8);
+		// The stream ends with an empty message.
+		assertEquals(0xFFFFFFFF, buffer.getInt(bytes.length - 8));
+		assertEquals(0, buffer.getInt(bytes.length - 4));
+		assertEquals(Arrays.asList("name:Utf8", "value:Float64"), arrowFields(
+			bytes));
+
+		// NB: Columns of wrapped arrays are written without boxing.
+		final GenericTable arrays = ArrayTables.wrap(new int[] { 1, 2 }, "i");
+		arrays.add(ArrayTables.wrap(new float[] { 0.5f, 1.5f }, "f").get(0));
+		final byte[] arrayBytes = Base64.getDecoder().decode(ns.arrow(arrays)
+			.data());
+		assertEquals(Arrays.asList("i:Int32", "f:Float32"), arrowFields(
+			arrayBytes));
+	}
+
+	/** Tests {@link DelimitedWriter}. */
+	@Test
+	public void testDelimitedWriter() throws IOException {
+		final NotebookTable table = new NotebookTable();
+		table.addRow("name", "a,b", "value", 1.5);
+		table.addRow("name", "say \"hi\"", "count", 7L);
+		final StringWriter out = new StringWriter();
+		DelimitedWriter.write(table, out, ',');
+		assertEquals("name,value,count\n" + //
+			"\"a,b\",1.5,\n" + //
+			"\"say \"\"hi\"\"\",,7\n", out.toString());
+	}
+
+	/** Tests that displaying long or deeply nested lists is bounded. */
+	@Test
+	public void testDisplayListLimits() throws IOException {
+		final List<List<String>> lists = new ArrayList<>();
+		for (int i = 0; i < 1100; i++) {
+			lists.add(Collections.singletonList("item" + i));
+		}
+		final String html = ((HTMLObject) ns.display(lists)).data();
+		assertTrue(html.contains("item999"));
+		assertFalse(html.contains("item1000"));
+		assertTrue(html.contains("&hellip; 100 more"));
+
+		List<?> nested = Collections.singletonList("leaf");
+		for (int i = 0; i < 10000; i++) {
+			nested = Collections.singletonList(nested);
+		}
+		final String deep = ((HTMLObject) ns.display(nested)).data();
+		assertFalse(deep.contains("leaf"));
+		assertTrue(deep.contains("&hellip; 1 more"));
+	}
+
+	/**
+	 * Tests that plain nested lists are expanded up to the limits of the
+	 * {@link DisplaySettings}, while tables are displayed as tables.
+	 */
+	@Test
+	public void testDisplayListSettings() throws IOException {
+		ns.displaySettings().setMaxListItems(3);
+		final GenericTable table = new DefaultGenericTable(1, 1);
+		table.set(0, 0, "cell");
+		final List<Object> list = Arrays.asList("item-a", Arrays.asList("item-b",
+			"item-c"), table, "item-d");
+		final String html = ((MIMEObject) ns.display((Object) list)).data();
+		assertTrue(html.contains("item-b"));
+		assertTrue(html.contains("<td>cell</td>"));
+		assertFalse(html.contains("item-d"));
+		assertTrue(html.contains("&hellip; 1 more"));
+	}
+
 	@Test
 	public void testMethods() {
 		final NotebookTable table = ns.methods(java.lang.Object.class);
@@ -161,8 +743,78 @@ public class NotebookServiceTest {
 		assertRow(table.get(8), "wait", "long, int", "void");
 	}
 
+	@Test
+	public void testMethodsPrefix() {
+		final NotebookTable table = ns.methods(java.lang.Object.class, "wa");
+		assertEquals(3, table.size());
+		assertRow(table.get(0), "wait", "<none>", "void");
+		assertRow(table.get(1), "wait", "long", "void");
+		assertRow(table.get(2), "wait", "long, int", "void");
+		assertEquals(0, ns.methods(java.lang.Object.class, "zzz").size());
+	}
+
+	@Test
+	public void testSearch() {
+		// NB: Classes queried via methods are added to the index immediately.
+		ns.methods(String.class, "");
+		final NotebookTable table = ns.search("substr", 10);
+		assertEquals("substring", table.get(0).get("name"));
+		assertEquals("java.lang.String", table.get(0).get("class"));
+		final NotebookTable fuzzy = ns.search("sbstrng", 10);
+		assertEquals("substring", fuzzy.get(0).get("name"));
+	}
+
 	// -- Helper methods --
 
+	/**
+	 * Decodes the fields of the schema message at the start of an Arrow stream,
+	 * as {@code name:type} strings.
+	 */
+	private static List<String> arrowFields(final byte[] bytes) {
+		final ByteBuffer buffer = ByteBuffer.wrap(bytes).order(
+			ByteOrder.LITTLE_ENDIAN);
+		// NB: The message follows the continuation marker and its length.
+		final int message = 8 + buffer.getInt(8);
+		final int schema = deref(buffer, field(buffer, message, 2));
+		final int fields = deref(buffer, field(buffer, schema, 1));
+		final List<String> result = new ArrayList<>();
+		for (int i = 0; i < buffer.getInt(fields); i++) {
+			final int field = deref(buffer, fields + 4 + 4 * i);
+			final int name = deref(buffer, field(buffer, field, 0));
+			final StringBuilder sb = new StringBuilder(new String(bytes, name + 4,
+				buffer.getInt(name), StandardCharsets.UTF_8));
+			final int typeId = buffer.get(field(buffer, field, 2));
+			final int type = deref(buffer, field(buffer, field, 3));
+			if (typeId == 2) {
+				sb.append(":Int").append(buffer.getInt(field(buffer, type, 0)));
+			}
+			else if (typeId == 3) {
+				final short precision = buffer.getShort(field(buffer, type, 0));
+				sb.append(precision == 1 ? ":Float32" : ":Float64");
+			}
+			else if (typeId == 5) sb.append(":Utf8");
+			else sb.append(":").append(typeId);
+			result.add(sb.toString());
+		}
+		return result;
+	}
+
+	/** Gets the position of a FlatBuffers table field, or -1 if absent. */
+	private static int field(final ByteBuffer buffer, final int table,
+		final int index)
+	{
+		final int vtable = table - buffer.getInt(table);
+		final int entry = 4 + 2 * index;
+		final int offset = entry < buffer.getShort(vtable) ? //
+			buffer.getShort(vtable + entry) : 0;
+		return offset == 0 ? -1 : table + offset;
+	}
+
+	/** Follows a FlatBuffers offset. */
+	private static int deref(final ByteBuffer buffer, final int pos) {
+		return pos + buffer.getInt(pos);
+	}
+
 	private ArrayImg<UnsignedByteType, ByteArray> createTestImg() {
 		final int w = 20, h = 20, valueOffset = 23;
 		final byte[] data = new byte[w * h];
@@ -208,4 +860,37 @@ public class NotebookServiceTest {
 		assertEquals(arguments, row1.get("arguments"));
 		assertEquals(returns, row1.get("returns"));
 	}
+
+	// -- Helper classes --
+
+	/** Type which only {@link StartupProbeConverter} can convert. */
+	public static class StartupProbe {}
+
+	/** Converter which counts how many times it has been created. */
+	@Plugin(type = org.scijava.convert.Converter.class)
+	public static class StartupProbeConverter extends
+		AbstractConverter<StartupProbe, String>
+	{
+
+		private static final AtomicInteger CREATED = new AtomicInteger();
+
+		public StartupProbeConverter() {
+			CREATED.incrementAndGet();
+		}
+
+		@Override
+		public <T> T convert(final Object src, final Class<T> dest) {
+			return dest.cast(String.valueOf(src));
+		}
+
+		@Override
+		public Class<String> getOutputType() {
+			return String.class;
+		}
+
+		@Override
+		public Class<StartupProbe> getInputType() {
+			return StartupProbe.class;
+		}
+	}
 }
@@ -0,0 +1,127 @@
+/*-
+ * #%L
+ * ImageJ software for multidimensional image processing and analysis.
+ * %%
+ * Copyright (C) 2017 - 2018 Board of Regents of the University of
+ * Wisconsin-Madison.
+ * %%
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ * 
+ * 1. Redistributions of source code must retain the above copyright notice,
+ *    this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright notice,
+ *    this list of conditions and the following disclaimer in the documentation
+ *    and/or other materials provided with the distribution.
+ * 
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT HOLDERS OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ * #L%
+ */
+
+package net.imagej.notebook;
+
+import net.imglib2.RandomAccessibleInterval;
+import net.imglib2.img.Img;
+import net.imglib2.img.array.ArrayImgs;
+import net.imglib2.type.numeric.RealType;
+import net.imglib2.type.numeric.integer.IntType;
+import net.imglib2.type.numeric.integer.UnsignedByteType;
+import net.imglib2.type.numeric.integer.UnsignedShortType;
+import net.imglib2.type.numeric.real.DoubleType;
+import net.imglib2.type.numeric.real.FloatType;
+import net.imglib2.view.Views;
+
+/**
+ * A benchmark of {@link Renderer} in steady state, after warming up with
+ * images of many pixel types, as happens in a long notebook session.
+ * <p>
+ * It first times rendering {@link FloatType} images alone, then renders
+ * images of five pixel types, then times {@link FloatType} again. With loops
+ * specialized per type (see {@link RenderLoops}), the last timing stays close
+ * to the first. Pass {@code shared} as an argument to render with a single
+ * shared loop instead, for comparison.
+ * </p>
+ * <p>
+ * Usage: {@code RenderBenchmark [shared]}
+ * </p>
+ *
+ * @author Curtis Rueden
+ */
+public class RenderBenchmark {
+
+	private static final int SIZE = 512;
+	private static final int WARMUP = 200;
+	private static final int RUNS = 200;
+
+	public static void main(final String[] args) {
+		if (args.length > 0 && args[0].equals("shared")) {
+			RenderLoops.setSpecialized(false);
+		}
+
+		// NB: Views avoid the raw array fast path for 8- and 16-bit images.
+		final Img<FloatType> floats = ArrayImgs.floats(SIZE, SIZE, 2);
+		final Img<UnsignedByteType> bytes = ArrayImgs.unsignedBytes(SIZE, SIZE, 2);
+		final Img<UnsignedShortType> shorts = //
+			ArrayImgs.unsignedShorts(SIZE, SIZE, 2);
+		final Img<IntType> ints = ArrayImgs.ints(SIZE, SIZE, 2);
+		final Img<DoubleType> doubles = ArrayImgs.doubles(SIZE, SIZE, 2);
+		fill(floats);
+		fill(bytes);
+		fill(shorts);
+		fill(ints);
+		fill(doubles);
+
+		final double before = time(floats, WARMUP, RUNS);
+		System.out.printf("float only:        %8.3f ms/render%n", before);
+
+		for (int i = 0; i < WARMUP; i++) {
+			time(Views.interval(bytes, bytes), 1, 0);
+			time(Views.interval(shorts, shorts), 1, 0);
+			time(ints, 1, 0);
+			time(doubles, 1, 0);
+			time(floats, 1, 0);
+		}
+
+		final double after = time(floats, WARMUP, RUNS);
+		System.out.printf("float after mixed: %8.3f ms/render (%.2fx)%n", after,
+			after / before);
+	}
+
+	/**
+	 * Renders the given image repeatedly, alternating between one channel and
+	 * two composited channels.
+	 *
+	 * @return the mean milliseconds per render after the warm-up.
+	 */
+	private static <T extends RealType<T>> double time(
+		final RandomAccessibleInterval<T> image, final int warmup, final int runs)
+	{
+		final RandomAccessibleInterval<T> channel = Views.hyperSlice(image, 2, 0);
+		final Renderer<T> renderer = new Renderer<>();
+		final double[] min1 = { 0 }, max1 = { 255 };
+		final double[] min2 = { 0, 0 }, max2 = { 255, 255 };
+		long start = 0;
+		for (int i = 0; i < warmup + runs; i++) {
+			if (i == warmup) start = System.nanoTime();
+			renderer.render(channel, 0, 1, -1, min1, max1, null);
+			renderer.render(image, 0, 1, 2, min2, max2, null);
+		}
+		return runs == 0 ? 0 : (System.nanoTime() - start) / 1e6 / runs / 2;
+	}
+
+	private static <T extends RealType<T>> void fill(final Img<T> image) {
+		int i = 0;
+		for (final T t : image)
+			t.setReal(i++ * 7 % 251);
+	}
+}